@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import model.Board;
+import model.Move;
+import model.MoveList;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private Board board;
+    private List<Move> moves;
+    private final MoveList moveList = new MoveList();
+    private final MoveList legalMoves = new MoveList();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new Board(Positions.fen(position));
+        moves = board.generateAllLegalMoves();
+        board.generateLegalMoves(legalMoves);
+    }
+
+    @Benchmark
+    public List<Move> generateAllLegalMoves() {
+        return board.generateAllLegalMoves();
+    }
+
+    @Benchmark
+    public MoveList generateLegalMoves() {
+        board.generateLegalMoves(moveList);
+        return moveList;
+    }
+
+    // Every legal move of the position is played and taken back once
+    @Benchmark
+    public Board makeUndoAllMoves() {
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            board.makeMove(move);
+            board.unmakeMove(move);
+        }
+        return board;
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return board.isInCheck(board.sideToMove);
+    }
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import model.MagicBitboards;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MagicBitboardsBenchmark {
+
+    private MagicBitboards magics;
+    private final long[] occupancies = new long[64];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        magics = new MagicBitboards();
+
+        // Sparse random occupancies, roughly as dense as a middlegame
+        Random random = new Random(0xC0FFEEL);
+        for (int sq = 0; sq < 64; sq++) {
+            occupancies[sq] = random.nextLong() & random.nextLong();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public long getRookAttacks() {
+        long acc = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            acc ^= magics.getRookAttacks(sq, occupancies[sq]);
+        }
+        return acc;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(64)
+    public long getBishopAttacks() {
+        long acc = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            acc ^= magics.getBishopAttacks(sq, occupancies[sq]);
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import engine.Search;
+import engine.SmpSearch;
+import model.Board;
+
+import org.openjdk.jmh.annotations.*;
+
+// Lazy SMP scaling: every invocation searches to a fixed depth from an
+// empty transposition table. timeToDepth reports ms per search and
+// nodesPerSecond the node rate of all threads together (the "nodes"
+// counter, in nodes/s).
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"opening", "middlegame"})
+    public String position;
+
+    @Param({"7"})
+    public int depth;
+
+    private SmpSearch search;
+    private Board board;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        search = new SmpSearch(threads, 64);
+        board = new Board(Positions.fen(position));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        search.clear();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int timeToDepth() {
+        return search.search(board, depth, 0).bestMove();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int nodesPerSecond(Counters counters) {
+        Search.Result result = search.search(board, depth, 0);
+        counters.nodes += result.nodes();
+        return result.bestMove();
+    }
+}
@@ -1,6 +1,15 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Scanner;
 
+import engine.BookBuilder;
+import engine.OpeningBook;
+import engine.Search;
+import engine.TimeManager;
+import engine.Uci;
 import model.*;
+import io.PgnImporter;
 import io.Storage;
 
 import org.fusesource.jansi.Ansi;
@@ -12,6 +21,14 @@ public class CLI {
     private static Scanner scanner;
     private static boolean gameActive;
     private static Timer timer;
+    private static Search engine;
+    private static Color engineColor;
+    private static int engineDepth;
+    private static long engineTimeMs;
+    private static String engineInfo;
+    private static String hintInfo;
+    private static OpeningBook book;
+    private static boolean bookLoaded;
 
     static int whiteR = 255;
     static int whiteG = 255;
@@ -20,8 +37,46 @@ public class CLI {
     static Ansi.Color blackPiece = Ansi.Color.BLACK;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("perft")) {
+            Perft.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("search")) {
+            Search.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("book")) {
+            try {
+                BookBuilder.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Cannot build book: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("import")) {
+            try {
+                PgnImporter.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Cannot import PGN: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("bitbase")) {
+            try {
+                Bitbase.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.err.println("Cannot write bitbases: " + e.getMessage());
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equalsIgnoreCase("uci")) {
+            Uci.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         AnsiConsole.systemInstall();
         scanner = new Scanner(System.in);
+        Bitbase.loadDefault();
         gameActive = false;
 
         while (true) {
@@ -29,8 +84,9 @@ public class CLI {
 
             switch (getUserChoice()) {
                 case 1 -> startNewGame();
-                case 2 -> loadGame();
-                case 3 -> {
+                case 2 -> startEngineGame();
+                case 3 -> loadGame();
+                case 4 -> {
                     System.out.println("Goodbye!");
                     scanner.close();
                     AnsiConsole.systemUninstall();
@@ -47,15 +103,17 @@ public class CLI {
         System.out.println("║      CHESS GAME - Main Menu           ║");
         System.out.println("╠═══════════════════════════════════════╣");
         System.out.println("║  1. New Game                          ║");
-        System.out.println("║  2. Load Game from PGN                ║");
-        System.out.println("║  3. Exit                              ║");
+        System.out.println("║  2. Play vs Computer                  ║");
+        System.out.println("║  3. Load Game from PGN                ║");
+        System.out.println("║  4. Exit                              ║");
         System.out.println("╚═══════════════════════════════════════╝");
-        System.out.print("Enter choice (1-3): ");
+        System.out.print("Enter choice (1-4): ");
     }
 
     private static void startNewGame(){
         game = new Game();
         board = game.getBoard();
+        engineColor = null;
         
         // Choose time control
         timer = selectTimeControl();
@@ -66,6 +124,54 @@ public class CLI {
         playGame();
     }
 
+    private static void startEngineGame() {
+        clearScreen();
+        System.out.println("╔═══════════════════════════════════════╗");
+        System.out.println("║      Play vs Computer                 ║");
+        System.out.println("╚═══════════════════════════════════════╝");
+        System.out.print("Play as (w/b): ");
+        String side = scanner.nextLine().trim().toLowerCase();
+        engineColor = side.startsWith("b") ? Color.WHITE : Color.BLACK;
+
+        System.out.println("1. Fixed depth");
+        System.out.println("2. Time per move");
+        System.out.println("3. Chess clock");
+        System.out.print("Choose limit (1-3): ");
+        timer = null;
+        engineDepth = 0;
+        engineTimeMs = 0;
+        switch (getUserChoice()) {
+            case 2 -> {
+                System.out.print("Seconds per move: ");
+                engineTimeMs = Math.max(1, parseOrDefault(scanner.nextLine().trim(), 3)) * 1000;
+            }
+            case 3 -> timer = selectTimeControl();
+            default -> {
+                System.out.print("Search depth: ");
+                engineDepth = Math.max(1, parseOrDefault(scanner.nextLine().trim(), 5));
+            }
+        }
+        // "No timer" on the clock menu leaves the engine at its default depth
+        if (engineDepth == 0 && engineTimeMs == 0 && timer == null) engineDepth = 5;
+
+        game = new Game();
+        board = game.getBoard();
+        engine = new Search();
+        engineInfo = null;
+        if (timer != null) timer.startTimer(Color.WHITE);
+
+        gameActive = true;
+        playGame();
+    }
+
+    private static int parseOrDefault(String input, int fallback) {
+        try {
+            return Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
     private static void loadGame() {
         clearScreen();
         System.out.println("╔═══════════════════════════════════════╗");
@@ -77,6 +183,7 @@ public class CLI {
         try {
             game = Storage.readGame(fileName);
             board = new Board(); 
+            engineColor = null;
     
             for (Move m : game.getMoves()) {
                 board.resolveAndMakeMove(m);
@@ -113,6 +220,14 @@ public class CLI {
                 errorMessage = null;
             }
             
+            if (engineColor != null && engineInfo != null) {
+                System.out.println(engineInfo);
+            }
+            if (hintInfo != null) {
+                System.out.println(Ansi.ansi().fg(Ansi.Color.CYAN).a(hintInfo).reset());
+                hintInfo = null;
+            }
+
             System.out.println();
             
             // Display timer if enabled
@@ -132,6 +247,11 @@ public class CLI {
                 }
             }
             
+            if (board.sideToMove == engineColor) {
+                errorMessage = playEngineMove();
+                continue;
+            }
+
             System.out.print(Ansi.ansi().bold().a(game.getBoard().sideToMove == Color.WHITE ? "White's turn: " : "Black's turn: ").reset());
             
             String input = scanner.nextLine().trim();
@@ -145,11 +265,15 @@ public class CLI {
             } else if (input.equalsIgnoreCase("undo")) {
                 if (board.canUndo()) {
                     board.undo();
+                    // Take back the computer's reply as well
+                    if (board.sideToMove == engineColor && board.canUndo()) board.undo();
                 } else {
                     errorMessage = "No moves to undo";
                 }
             } else if (input.equalsIgnoreCase("save")) {
                 saveGame();
+            } else if (input.equalsIgnoreCase("hint")) {
+                hintInfo = hint();
             } else if (input.equalsIgnoreCase("help")) {
                 showHelpMenu();
             } else if (!input.isEmpty()) {
@@ -161,39 +285,101 @@ public class CLI {
     private static String processMove(String input) {
         try {
             game.addMove(input);
-            
-            // Check for checkmate
-            if (board.isCheckmate()) {
-                String loser = board.sideToMove == Color.WHITE ? "White" : "Black";
-                String winner = board.sideToMove == Color.WHITE ? "Black" : "White";
-                System.out.println(Ansi.ansi().fg(Ansi.Color.GREEN).bold().a("\nCheckmate! " + winner + " wins!").reset());
-                game.getTags().put("Result", board.sideToMove == Color.WHITE ? "0-1" : "1-0");
-                gameActive = false;
-                if (timer != null) timer.shutdown();
-                return null;
-            }
-            
-            // Check for stalemate
-            if (board.isStalemate()) {
-                System.out.println(Ansi.ansi().fg(Ansi.Color.CYAN).bold().a("\nStalemate! The game is drawn.").reset());
-                game.getTags().put("Result", "1/2-1/2");
-                gameActive = false;
-                if (timer != null) timer.shutdown();
-                return null;
-            }
-            
-            if (timer != null) {
-                timer.stopTimer();
-                timer.switchPlayer();
-                timer.startTimer(board.sideToMove);
-            }
-            
+            checkGameEnd();
             return null; 
         } catch (Exception e) {
             return e.getMessage();
         }
     }
 
+    private static String playEngineMove() {
+        OpeningBook openingBook = openingBook();
+        int bookMove = openingBook != null ? openingBook.probe(board) : PackedMove.NONE;
+        if (bookMove != PackedMove.NONE) {
+            engineInfo = "Computer played " + PackedMove.toCoordinate(bookMove) + " (book)";
+            game.addMove(bookMove);
+            checkGameEnd();
+            return null;
+        }
+
+        System.out.println(Ansi.ansi().fg(Ansi.Color.CYAN).a("Computer is thinking...").reset());
+
+        TimeManager time = timer != null
+            ? TimeManager.forClock(timer, board.sideToMove)
+            : TimeManager.fixed(engineTimeMs);
+        Search.Result result = engine.search(board, engineDepth, time);
+        if (result == null || result.bestMove() == PackedMove.NONE) {
+            return "Computer has no move";
+        }
+
+        String score = result.isMate()
+            ? "mate " + result.mateIn()
+            : String.format("%+.2f", result.score() / 100.0);
+        engineInfo = String.format("Computer played %s (depth %d, score %s, %d nodes, %d kN/s)",
+            PackedMove.toCoordinate(result.bestMove()), result.depth(), score, result.nodes(), result.nps() / 1000);
+
+        game.addMove(result.bestMove());
+        checkGameEnd();
+        return null;
+    }
+
+    // The book move with the highest weight, or a one-second search
+    private static String hint() {
+        OpeningBook openingBook = openingBook();
+        int move = openingBook != null ? openingBook.bestMove(board) : PackedMove.NONE;
+        if (move != PackedMove.NONE) return "Hint: " + PackedMove.toCoordinate(move) + " (book)";
+
+        Search.Result result = (engine != null ? engine : new Search()).search(board, 0, 1000);
+        if (result == null || result.bestMove() == PackedMove.NONE) return "No legal moves";
+        return "Hint: " + PackedMove.toCoordinate(result.bestMove());
+    }
+
+    // book.bin in the working directory, or the file named by -Dchess.book
+    private static OpeningBook openingBook() {
+        if (!bookLoaded) {
+            book = OpeningBook.openIfPresent(Path.of(System.getProperty("chess.book", "book.bin")));
+            bookLoaded = true;
+        }
+        return book;
+    }
+
+    private static void checkGameEnd() {
+        // Check for checkmate
+        if (board.isCheckmate()) {
+            String loser = board.sideToMove == Color.WHITE ? "White" : "Black";
+            String winner = board.sideToMove == Color.WHITE ? "Black" : "White";
+            System.out.println(Ansi.ansi().fg(Ansi.Color.GREEN).bold().a("\nCheckmate! " + winner + " wins!").reset());
+            game.getTags().put("Result", board.sideToMove == Color.WHITE ? "0-1" : "1-0");
+            gameActive = false;
+            if (timer != null) timer.shutdown();
+            return;
+        }
+        
+        // Check for stalemate
+        if (board.isStalemate()) {
+            System.out.println(Ansi.ansi().fg(Ansi.Color.CYAN).bold().a("\nStalemate! The game is drawn.").reset());
+            game.getTags().put("Result", "1/2-1/2");
+            gameActive = false;
+            if (timer != null) timer.shutdown();
+            return;
+        }
+
+        // A bitbase draw cannot be won by either side
+        if (Bitbase.probeLoaded(board) == Bitbase.DRAW) {
+            System.out.println(Ansi.ansi().fg(Ansi.Color.CYAN).bold().a("\nDrawn endgame! The game is drawn.").reset());
+            game.getTags().put("Result", "1/2-1/2");
+            gameActive = false;
+            if (timer != null) timer.shutdown();
+            return;
+        }
+        
+        if (timer != null) {
+            timer.stopTimer();
+            timer.switchPlayer();
+            timer.startTimer(board.sideToMove);
+        }
+    }
+
     private static void handleResign() {
         String loser = board.sideToMove == Color.WHITE ? "White" : "Black";
         String winner = board.sideToMove == Color.WHITE ? "Black" : "White";
@@ -295,6 +481,7 @@ public class CLI {
         System.out.println("║    save    - Save game to PGN file    ║");
         System.out.println("║    resign  - Give up the game         ║");
         System.out.println("║    draw    - End game in a draw       ║");
+        System.out.println("║    hint    - Suggest a move           ║");
         System.out.println("║    help    - Show this help menu      ║");
         System.out.println("╚═══════════════════════════════════════╝");
         System.out.print("Press Enter to return...");
@@ -317,13 +504,7 @@ public class CLI {
     private static void printColoredBoard() {
         System.out.println();
         System.out.print("Black captured: ");
-        if (board.capturedByBlack.isEmpty()) System.out.println("—");
-        else {
-            for (Piece p : board.capturedByBlack) {
-                System.out.print(Ansi.ansi().fg(Ansi.Color.WHITE).bold().a(getPieceUnicode(p) + " ").reset());
-            }
-            System.out.println();
-        }
+        printCapturedPieces(Color.WHITE, Ansi.Color.WHITE);
         
         System.out.println("\n   a  b  c  d  e  f  g  h");
 
@@ -373,13 +554,19 @@ public class CLI {
         
         System.out.println();
         System.out.print("White captured: ");
-        if (board.capturedByWhite.isEmpty()) System.out.println("—");
-        else {
-            for (Piece p : board.capturedByWhite) {
-                System.out.print(Ansi.ansi().fg(Ansi.Color.BLACK).bold().a(getPieceUnicode(p) + " ").reset());
+        printCapturedPieces(Color.BLACK, Ansi.Color.BLACK);
+    }
+
+    private static void printCapturedPieces(Color capturedColor, Ansi.Color fg) {
+        boolean any = false;
+        for (Type type : Type.values()) {
+            int count = board.getCapturedCount(type, capturedColor);
+            for (int i = 0; i < count; i++) {
+                System.out.print(Ansi.ansi().fg(fg).bold().a(getPieceUnicode(Piece.of(type, capturedColor)) + " ").reset());
+                any = true;
             }
-            System.out.println();
         }
+        System.out.println(any ? "" : "—");
     }
 
     private static String getPieceUnicode(Piece piece) {
@@ -0,0 +1,165 @@
+package engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.PgnReader;
+import model.Board;
+import model.Game;
+import model.Move;
+import model.Type;
+
+// Builds an OpeningBook file from a PGN collection: the games are streamed
+// through io.PgnReader and replayed for their first plies, and each
+// position's moves are weighted by how often they were played.
+public class BookBuilder {
+
+    public static final int DEFAULT_PLIES = 24;
+
+    private static final String USAGE = "Usage: book <games.pgn>... --out <book.bin> [--plies <n>] [--min <count>]";
+
+    private final int maxPlies;
+    private final int minCount;
+
+    // Zobrist key -> book move -> times played
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+
+    private int games;
+    private int skipped;
+
+
+    public BookBuilder(int maxPlies, int minCount) {
+        this.maxPlies = maxPlies;
+        this.minCount = Math.max(1, minCount);
+    }
+
+
+    // Reads one game at a time, so the collection is never held in memory
+    public void addPgn(Path file) throws IOException {
+        try (PgnReader reader = new PgnReader(file)) {
+            while (reader.hasNext()) addGame(reader.next());
+            skipped += (int) reader.skipped();
+        }
+    }
+
+
+    public void addGame(Game game) {
+        Board board = new Board();
+        List<Move> moves = game.getMoves();
+        for (int ply = 0; ply < Math.min(maxPlies, moves.size()); ply++) {
+            Move move = moves.get(ply);
+            long key = board.getZobristKey();
+            try {
+                board.resolveAndMakeMove(move);
+            } catch (Board.IllegalMoveException | RuntimeException e) {
+                // Keep the plies before the bad move
+                skipped++;
+                return;
+            }
+            counts.computeIfAbsent(key, k -> new HashMap<>()).merge(bookMove(board, move), 1, Integer::sum);
+        }
+        games++;
+    }
+
+
+    public int games() {
+        return games;
+    }
+
+
+    public int skipped() {
+        return skipped;
+    }
+
+
+    // Writes the entries sorted by unsigned key, most played move first.
+    // Counts are scaled down per position to fit the 16-bit weight.
+    public int write(OutputStream stream) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> position : counts.entrySet()) {
+            int max = 0;
+            for (int count : position.getValue().values()) max = Math.max(max, count);
+            double scale = max > 0xFFFF ? (double) 0xFFFF / max : 1.0;
+
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet()) {
+                if (move.getValue() < minCount) continue;
+                long weight = Math.max(1, (long) (move.getValue() * scale));
+                entries.add(new long[] { position.getKey(), move.getKey(), weight });
+            }
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        for (long[] e : entries) {
+            out.writeLong(e[0]);
+            out.writeShort((int) e[1]);
+            out.writeShort((int) e[2]);
+            out.writeInt(0);
+        }
+        out.flush();
+        return entries.size();
+    }
+
+
+    // Polyglot encoding of the move just played, read back from the board
+    private static int bookMove(Board board, Move move) {
+        int from = board.lastMoveFrom;
+        int to = board.lastMoveTo;
+        if (board.getPieceAt(to).type() == Type.KING && Math.abs(to - from) == 2) {
+            to = to > from ? from + 3 : from - 4;
+        }
+        int promotion = 0;
+        if ((move.flags & Move.FLAG_PROMOTION) != 0) {
+            promotion = (move.promotion != null ? move.promotion : Type.QUEEN).ordinal();
+        }
+        return promotion << 12 | from << 6 | to;
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        Path output = null;
+        int plies = DEFAULT_PLIES;
+        int minCount = 1;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].startsWith("--") && i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--out" -> output = Path.of(args[++i]);
+                    case "--plies" -> plies = Integer.parseInt(args[++i]);
+                    case "--min" -> minCount = Integer.parseInt(args[++i]);
+                    default -> inputs.add(Path.of(args[i]));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            inputs.clear();
+        }
+        if (inputs.isEmpty() || output == null) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        long start = System.nanoTime();
+        BookBuilder builder = new BookBuilder(plies, minCount);
+        for (Path input : inputs) builder.addPgn(input);
+
+        int entries;
+        try (OutputStream out = Files.newOutputStream(output)) {
+            entries = builder.write(out);
+        }
+        System.out.printf("%d games (%d skipped), %d entries written to %s in %d ms%n",
+            builder.games(), builder.skipped(), entries, output, (System.nanoTime() - start) / 1_000_000);
+    }
+}
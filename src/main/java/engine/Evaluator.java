@@ -0,0 +1,95 @@
+package engine;
+
+import model.Board;
+import model.Color;
+import model.PieceSquareTables;
+import model.Type;
+
+// One per Search: the pawn hash table it owns is not shared between threads
+public final class Evaluator {
+
+    // Rough piece values for move ordering and pruning, indexed by Type ordinal
+    static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 0 };
+
+    private static final Type[] TYPES = Type.values();
+
+    private static final int PAWN_HASH_ENTRIES = 1 << 14;
+
+    private final PawnHashTable pawns = new PawnHashTable(PAWN_HASH_ENTRIES);
+
+
+    // Static score in centipawns from the side to move's point of view,
+    // blended between the middlegame and endgame sums Board keeps up to date
+    // plus the cached pawn structure
+    public int evaluate(Board board) {
+        long pawnTerms = pawns.get(board);
+        int mg = board.getMidgameScore() + PawnStructure.mg(pawnTerms) + kingShelter(board, pawnTerms);
+        int eg = board.getEndgameScore() + PawnStructure.eg(pawnTerms);
+        int score = taper(mg, eg, board.getPhase());
+        assert score == evaluateFromScratch(board) : "Incremental evaluation out of sync";
+        return board.sideToMove == Color.WHITE ? score : -score;
+    }
+
+
+    // Share of evaluations that found their pawn structure cached
+    public double pawnHashHitRate() {
+        return pawns.hitRate();
+    }
+
+
+    void newSearch() {
+        pawns.resetStatistics();
+    }
+
+
+    // Rescans every bitboard; only for checking the incremental terms and
+    // the pawn cache (run with -ea to have evaluate() compare against it)
+    public static int evaluateFromScratch(Board board) {
+        int mg = 0;
+        int eg = 0;
+        int phase = 0;
+        for (Color color : Color.values()) {
+            for (Type type : TYPES) {
+                int idx = type.ordinal() + color.ordinal() * 6;
+                for (long bits = board.getBitboard(type, color); bits != 0; bits &= bits - 1) {
+                    int sq = Long.numberOfTrailingZeros(bits);
+                    mg += PieceSquareTables.MG[idx][sq];
+                    eg += PieceSquareTables.EG[idx][sq];
+                    phase += PieceSquareTables.PHASE_WEIGHTS[type.ordinal()];
+                }
+            }
+        }
+
+        long pawnTerms = PawnStructure.evaluate(
+            board.getBitboard(Type.PAWN, Color.WHITE), board.getBitboard(Type.PAWN, Color.BLACK));
+        mg += PawnStructure.mg(pawnTerms) + kingShelter(board, pawnTerms);
+        eg += PawnStructure.eg(pawnTerms);
+        return taper(mg, eg, phase);
+    }
+
+
+    // Middlegame bonus for the pawns in front of a king that has castled
+    // (or stayed) on a wing, White positive
+    private static int kingShelter(Board board, long pawnTerms) {
+        return shelter(board, pawnTerms, Color.WHITE) - shelter(board, pawnTerms, Color.BLACK);
+    }
+
+
+    private static int shelter(Board board, long pawnTerms, Color color) {
+        int king = Long.numberOfTrailingZeros(board.getBitboard(Type.KING, color));
+        if (king == 64) return 0;
+        int relativeRank = color == Color.WHITE ? king >>> 3 : 7 - (king >>> 3);
+        if (relativeRank > 1) return 0;
+
+        int file = king & 7;
+        if (file <= 2) return PawnStructure.shield(pawnTerms, color, PawnStructure.QUEENSIDE);
+        if (file >= 5) return PawnStructure.shield(pawnTerms, color, PawnStructure.KINGSIDE);
+        return 0;
+    }
+
+
+    private static int taper(int mg, int eg, int phase) {
+        int p = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        return (mg * p + eg * (PieceSquareTables.MAX_PHASE - p)) / PieceSquareTables.MAX_PHASE;
+    }
+}
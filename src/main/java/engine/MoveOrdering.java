@@ -0,0 +1,119 @@
+package engine;
+
+import model.MoveList;
+import model.PackedMove;
+import model.Type;
+
+// Orders the moves of a node: hash/PV move, captures by MVV-LVA, the two
+// killer moves of the ply, then quiet moves by butterfly history. Scores
+// live in one int[] per ply beside the MoveList, and moves are picked one
+// at a time, so a node that cuts off early never sorts the rest.
+class MoveOrdering {
+
+    private static final int HASH_MOVE = 1_000_000;
+    private static final int CAPTURE = 500_000;
+    private static final int FIRST_KILLER = 400_000;
+    private static final int SECOND_KILLER = 390_000;
+
+    private static final int QUEEN = Type.QUEEN.ordinal();
+
+    // History scores are halved when one grows past this, so they stay
+    // below the killer scores
+    private static final int HISTORY_LIMIT = 300_000;
+
+    private final int[][] scores = new int[Search.MAX_PLY][MoveList.CAPACITY];
+    private final int[][] killers = new int[Search.MAX_PLY][2];
+
+    // Butterfly table: [side][from * 64 + to]
+    private final int[][] history = new int[2][64 * 64];
+
+
+    void newSearch() {
+        for (int[] k : killers) k[0] = k[1] = PackedMove.NONE;
+        ageHistory();
+    }
+
+
+    void score(MoveList moves, int ply, int hashMove) {
+        int[] s = scores[ply];
+        int[] k = killers[ply];
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (move == hashMove) {
+                s[i] = HASH_MOVE;
+            } else if (PackedMove.isCapture(move) || PackedMove.promotion(move) == QUEEN) {
+                s[i] = CAPTURE + mvvLva(move);
+            } else if (move == k[0]) {
+                s[i] = FIRST_KILLER;
+            } else if (move == k[1]) {
+                s[i] = SECOND_KILLER;
+            } else {
+                s[i] = history[side(move)][butterfly(move)];
+            }
+        }
+    }
+
+
+    // Moves the best remaining move to index and returns it
+    int next(MoveList moves, int ply, int index) {
+        int[] s = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (s[i] > s[best]) best = i;
+        }
+
+        int move = moves.get(best);
+        if (best != index) {
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = s[best];
+            s[best] = s[index];
+            s[index] = score;
+        }
+        return move;
+    }
+
+
+    // Called when a quiet move causes a beta cutoff
+    void onQuietCutoff(int move, int ply, int depth) {
+        int[] k = killers[ply];
+        if (k[0] != move) {
+            k[1] = k[0];
+            k[0] = move;
+        }
+
+        int[] h = history[side(move)];
+        int index = butterfly(move);
+        h[index] += depth * depth;
+        if (h[index] > HISTORY_LIMIT) ageHistory();
+    }
+
+
+    private void ageHistory() {
+        for (int[] h : history) {
+            for (int i = 0; i < h.length; i++) h[i] >>= 1;
+        }
+    }
+
+
+    private static int side(int move) {
+        return PackedMove.piece(move) / 6;
+    }
+
+
+    private static int butterfly(int move) {
+        return PackedMove.from(move) << 6 | PackedMove.to(move);
+    }
+
+
+    // Most valuable victim first, then least valuable attacker; a queen
+    // promotion adds the queen's gain to the victim
+    private static int mvvLva(int move) {
+        int victim = PackedMove.isCapture(move) ? Evaluator.PIECE_VALUES[PackedMove.captured(move) % 6] : 0;
+        if (PackedMove.isPromotion(move)) {
+            victim += Evaluator.PIECE_VALUES[PackedMove.promotion(move)] - Evaluator.PIECE_VALUES[0];
+        }
+        return victim * 8 - PackedMove.piece(move) % 6;
+    }
+}
@@ -0,0 +1,178 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import model.Board;
+import model.MoveList;
+import model.PackedMove;
+import model.Type;
+
+// Opening book in the Polyglot .bin layout: 16-byte big-endian entries
+//
+//   key (8)  move (2)  weight (2)  learn (4)
+//
+// sorted by key as an unsigned number. The move packs to file, to rank,
+// from file, from rank and promotion in 3 bits each, and castling is
+// written as the king taking its own rook. The file is memory-mapped and
+// probed by binary search straight on the mapping, so a probe allocates
+// nothing.
+//
+// The keys are Board's own Zobrist keys, not the Polyglot Random64 set, so
+// books written by BookBuilder are readable here but books made by other
+// Polyglot tools will not match any position.
+public final class OpeningBook {
+
+    static final int ENTRY_SIZE = 16;
+
+    private final MappedByteBuffer data;
+    private final int entries;
+
+    // Probes are synchronized, so one instance can serve several threads
+    private final MoveList legal = new MoveList();
+    private final SplittableRandom random;
+
+
+    private OpeningBook(MappedByteBuffer data, long seed) {
+        this.data = data;
+        this.entries = data.capacity() / ENTRY_SIZE;
+        this.random = new SplittableRandom(seed);
+    }
+
+
+    public static OpeningBook open(Path file) throws IOException {
+        return open(file, System.nanoTime());
+    }
+
+
+    // A fixed seed makes the weighted choice between book moves repeatable
+    public static OpeningBook open(Path file, long seed) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % ENTRY_SIZE != 0) {
+                throw new IOException("Not a book file (size " + size + " is not a multiple of 16): " + file);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Book file too large: " + file);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), seed);
+        }
+    }
+
+
+    // Opens the book if the file exists; a missing book just means no book
+    public static OpeningBook openIfPresent(Path file) {
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            return open(file);
+        } catch (IOException e) {
+            System.err.println("Cannot read opening book " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+
+    public int entries() {
+        return entries;
+    }
+
+
+    // A book move for the position, picked at random in proportion to the
+    // weights, or PackedMove.NONE when the position is not in the book
+    public synchronized int probe(Board board) {
+        int first = firstEntry(board.getZobristKey());
+        if (first < 0) return PackedMove.NONE;
+
+        long key = keyAt(first);
+        long total = 0;
+        int last = first;
+        for (; last < entries && keyAt(last) == key; last++) total += weightAt(last);
+
+        int chosen = first;
+        if (total > 0) {
+            long pick = random.nextLong(total);
+            for (chosen = first; chosen < last - 1; chosen++) {
+                pick -= weightAt(chosen);
+                if (pick < 0) break;
+            }
+        }
+        return toPacked(board, moveAt(chosen));
+    }
+
+
+    // The book move with the highest weight, for deterministic use
+    public synchronized int bestMove(Board board) {
+        int first = firstEntry(board.getZobristKey());
+        if (first < 0) return PackedMove.NONE;
+
+        long key = keyAt(first);
+        int best = first;
+        for (int i = first + 1; i < entries && keyAt(i) == key; i++) {
+            if (weightAt(i) > weightAt(best)) best = i;
+        }
+        return toPacked(board, moveAt(best));
+    }
+
+
+    // Index of the first entry with this key, or -1
+    private int firstEntry(long key) {
+        int lo = 0;
+        int hi = entries;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo < entries && keyAt(lo) == key ? lo : -1;
+    }
+
+
+    private long keyAt(int i) {
+        return data.getLong(i * ENTRY_SIZE);
+    }
+
+
+    private int moveAt(int i) {
+        return data.getShort(i * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+
+    private int weightAt(int i) {
+        return data.getShort(i * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+
+    // The legal move a book move stands for; NONE if there is none, which
+    // happens only on a key collision or a corrupt book
+    private int toPacked(Board board, int bookMove) {
+        int from = (bookMove >>> 6) & 0x3F;
+        int to = bookMove & 0x3F;
+        int promotion = (bookMove >>> 12) & 0x7;
+
+        legal.clear();
+        board.generateLegalMoves(legal);
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (toBookMove(move) == (from << 6 | to | promotion << 12)) return move;
+        }
+        return PackedMove.NONE;
+    }
+
+
+    // Polyglot encoding of a move; the square numbering (a1 = 0, h8 = 63)
+    // and promotion codes (knight 1 ... queen 4) match Board's
+    static int toBookMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        if (PackedMove.pieceType(move) == Type.KING && Math.abs(to - from) == 2) {
+            to = to > from ? from + 3 : from - 4;
+        }
+        int promotion = PackedMove.isPromotion(move) ? PackedMove.promotion(move) : 0;
+        return promotion << 12 | from << 6 | to;
+    }
+}
@@ -0,0 +1,57 @@
+package engine;
+
+import model.Board;
+import model.Color;
+import model.Type;
+
+// Per-thread cache of PawnStructure results, keyed by Board's pawn-only
+// Zobrist key. Pawn moves and pawn captures are rare compared with other
+// moves, so most nodes find their pawn structure here.
+class PawnHashTable {
+
+    private final long[] keys;
+    private final long[] values;
+    private final int mask;
+
+    private long probes;
+    private long hits;
+
+
+    PawnHashTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        this.keys = new long[size];
+        this.values = new long[size];
+        this.mask = size - 1;
+    }
+
+
+    // Packed PawnStructure result for the board's pawns. An empty slot has
+    // key 0, which only matches a position without pawns, whose result is 0.
+    long get(Board board) {
+        long key = board.getPawnKey();
+        int i = (int) key & mask;
+        probes++;
+        if (keys[i] == key) {
+            hits++;
+            return values[i];
+        }
+
+        long value = PawnStructure.evaluate(
+            board.getBitboard(Type.PAWN, Color.WHITE),
+            board.getBitboard(Type.PAWN, Color.BLACK));
+        keys[i] = key;
+        values[i] = value;
+        return value;
+    }
+
+
+    void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+
+
+    double hitRate() {
+        return probes == 0 ? 0.0 : (double) hits / probes;
+    }
+}
@@ -0,0 +1,151 @@
+package engine;
+
+import model.Color;
+
+// Pawn structure terms that depend on nothing but the two pawn sets:
+// doubled, isolated, backward and passed pawns, plus the pawn shield in
+// front of each castled king position. The result is packed into one
+// long so PawnHashTable can cache it in a single slot:
+//
+//   bits  0-15  middlegame score (White positive)
+//   bits 16-31  endgame score
+//   bits 32-63  shield bytes: white queenside, white kingside,
+//               black queenside, black kingside
+final class PawnStructure {
+
+    static final int QUEENSIDE = 0;
+    static final int KINGSIDE = 1;
+
+    private static final int DOUBLED_MG = -10, DOUBLED_EG = -20;
+    private static final int ISOLATED_MG = -10, ISOLATED_EG = -15;
+    private static final int BACKWARD_MG = -8, BACKWARD_EG = -10;
+
+    // By rank counted from the pawn's own side
+    private static final int[] PASSED_MG = { 0, 5, 10, 20, 35, 60, 100, 0 };
+    private static final int[] PASSED_EG = { 0, 10, 20, 40, 70, 120, 200, 0 };
+
+    private static final int SHIELD_NEAR = 10;
+    private static final int SHIELD_FAR = 5;
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = 0x8080808080808080L;
+    private static final long QUEENSIDE_FILES = FILE_A * 0x07;
+    private static final long KINGSIDE_FILES = FILE_A * 0xE0;
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    // [color][square]: squares ahead of the pawn on its own and adjacent
+    // files, and the own-file part alone
+    private static final long[][] PASSED_SPAN = new long[2][64];
+    private static final long[][] FRONT_SPAN = new long[2][64];
+
+    // [color][square]: squares on the adjacent files level with or behind the pawn
+    private static final long[][] SUPPORT_SPAN = new long[2][64];
+
+    static {
+        for (int f = 0; f < 8; f++) {
+            FILES[f] = FILE_A << f;
+            ADJACENT_FILES[f] = (f > 0 ? FILE_A << (f - 1) : 0L) | (f < 7 ? FILE_A << (f + 1) : 0L);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int file = sq & 7;
+            int rank = sq >>> 3;
+            long above = rank == 7 ? 0L : -1L << ((rank + 1) * 8);
+            long below = rank == 0 ? 0L : -1L >>> ((8 - rank) * 8);
+            long upToRank = ~above;
+            long downToRank = ~below;
+
+            FRONT_SPAN[0][sq] = above & FILES[file];
+            FRONT_SPAN[1][sq] = below & FILES[file];
+            PASSED_SPAN[0][sq] = above & (FILES[file] | ADJACENT_FILES[file]);
+            PASSED_SPAN[1][sq] = below & (FILES[file] | ADJACENT_FILES[file]);
+            SUPPORT_SPAN[0][sq] = upToRank & ADJACENT_FILES[file];
+            SUPPORT_SPAN[1][sq] = downToRank & ADJACENT_FILES[file];
+        }
+    }
+
+    private PawnStructure() {}
+
+
+    static long evaluate(long whitePawns, long blackPawns) {
+        long whiteAttacks = ((whitePawns & ~FILE_A) << 7) | ((whitePawns & ~FILE_H) << 9);
+        long blackAttacks = ((blackPawns & ~FILE_A) >>> 9) | ((blackPawns & ~FILE_H) >>> 7);
+
+        int white = side(0, whitePawns, blackPawns, blackAttacks);
+        int black = side(1, blackPawns, whitePawns, whiteAttacks);
+
+        int mg = (short) white - (short) black;
+        int eg = (white >> 16) - (black >> 16);
+
+        long shields = shield(whitePawns, QUEENSIDE_FILES, 1)
+            | shield(whitePawns, KINGSIDE_FILES, 1) << 8
+            | shield(blackPawns, QUEENSIDE_FILES, 6) << 16
+            | shield(blackPawns, KINGSIDE_FILES, 6) << 24;
+
+        return (mg & 0xFFFFL) | (eg & 0xFFFFL) << 16 | shields << 32;
+    }
+
+
+    static int mg(long packed) {
+        return (short) packed;
+    }
+
+
+    static int eg(long packed) {
+        return (short) (packed >>> 16);
+    }
+
+
+    static int shield(long packed, Color color, int zone) {
+        return (int) (packed >>> (32 + 8 * (color.ordinal() * 2 + zone))) & 0xFF;
+    }
+
+
+    // Scores one side's pawns from that side's point of view, returned as
+    // mg in the low and eg in the high 16 bits
+    private static int side(int color, long own, long enemy, long enemyAttacks) {
+        int mg = 0;
+        int eg = 0;
+
+        for (int f = 0; f < 8; f++) {
+            int count = Long.bitCount(own & FILES[f]);
+            if (count > 1) {
+                mg += (count - 1) * DOUBLED_MG;
+                eg += (count - 1) * DOUBLED_EG;
+            }
+        }
+
+        for (long pawns = own; pawns != 0; pawns &= pawns - 1) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            int file = sq & 7;
+            int relativeRank = color == 0 ? sq >>> 3 : 7 - (sq >>> 3);
+
+            if ((own & ADJACENT_FILES[file]) == 0) {
+                mg += ISOLATED_MG;
+                eg += ISOLATED_EG;
+            } else if ((own & SUPPORT_SPAN[color][sq]) == 0) {
+                int stop = color == 0 ? sq + 8 : sq - 8;
+                if (stop >= 0 && stop < 64 && (enemyAttacks & (1L << stop)) != 0) {
+                    mg += BACKWARD_MG;
+                    eg += BACKWARD_EG;
+                }
+            }
+
+            // The rear pawn of a doubled pair is not passed
+            if ((enemy & PASSED_SPAN[color][sq]) == 0 && (own & FRONT_SPAN[color][sq]) == 0) {
+                mg += PASSED_MG[relativeRank];
+                eg += PASSED_EG[relativeRank];
+            }
+        }
+        return (mg & 0xFFFF) | eg << 16;
+    }
+
+
+    // Own pawns on the two ranks in front of a king on its back rank
+    private static long shield(long pawns, long files, int nearRank) {
+        int farRank = nearRank == 1 ? 2 : 5;
+        return SHIELD_NEAR * Long.bitCount(pawns & files & (0xFFL << (nearRank * 8)))
+            + SHIELD_FAR * Long.bitCount(pawns & files & (0xFFL << (farRank * 8)));
+    }
+}
@@ -0,0 +1,448 @@
+package engine;
+
+import java.util.function.Consumer;
+
+import model.Bitbase;
+import model.Board;
+import model.MoveList;
+import model.PackedMove;
+import model.Perft;
+import model.Type;
+
+public class Search {
+
+    public static final int MAX_PLY = 64;
+    public static final int INFINITY = 32000;
+    public static final int MATE = 30000;
+
+    // Mate scores are MATE - ply; anything beyond this bound is a mate
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+
+    // Clock is only read every this many nodes
+    private static final int CHECK_INTERVAL = 2048;
+
+    // Quiescence skips a capture that cannot lift the score to alpha even
+    // if the captured piece comes for free plus this margin
+    private static final int DELTA_MARGIN = 200;
+
+    public static final int DEFAULT_HASH_MB = 16;
+
+    // Bitbase wins score this much plus the static evaluation, which keeps
+    // them below the mate scores and still steers towards the mate
+    private static final int KNOWN_WIN = 20000;
+
+    private static final int QUEEN = Type.QUEEN.ordinal();
+
+    private static final String USAGE = "Usage: search [--depth <n>] [--movetime <ms>] [--clock <ms> [--inc <ms>]]"
+        + " [--fen <fen>] [--threads <n>] [--hash <mb>]";
+
+    private final TranspositionTable tt;
+
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    private final Evaluator evaluator = new Evaluator();
+
+    private final MoveList[] moveLists = new MoveList[MAX_PLY];
+
+    // Triangular principal variation table: pvTable[ply] holds the best line
+    // found from ply onwards, pvLength[ply] where it ends.
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    private Board board;
+    private int[] previousPv = new int[0];
+    private long nodes;
+
+    // Beta cutoffs, and how many of them came from the first move tried
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    private long quiescenceNodes;
+    private long seePruned;
+    private long bitbaseHits;
+    private boolean rootInBitbase;
+    private long startTime;
+    private long deadline;
+    private boolean canStop;
+    private volatile boolean stopped;
+    private Consumer<Result> listener;
+
+    // Set by SmpSearch on helper threads: they start at firstDepth and may
+    // be stopped at any time
+    boolean helper;
+    int firstDepth = 1;
+
+    // Cleared by SmpSearch, which ages the shared table once before any
+    // of its threads starts
+    boolean agesTable = true;
+
+
+    public Search() {
+        this(new TranspositionTable(DEFAULT_HASH_MB));
+    }
+
+
+    public Search(TranspositionTable tt) {
+        this.tt = tt;
+        for (int i = 0; i < MAX_PLY; i++) moveLists[i] = new MoveList();
+    }
+
+
+    // Called with the result of every completed iteration
+    public void setListener(Consumer<Result> listener) {
+        this.listener = listener;
+    }
+
+
+    public void stop() {
+        stopped = true;
+    }
+
+
+    // Helpers are re-armed before their thread starts, so a stop() that
+    // arrives before the helper begins searching is not lost
+    void rearm() {
+        stopped = false;
+    }
+
+
+    // Searches to maxDepth (0 for no limit) or until timeLimitMs runs out
+    // (0 for no limit). The board is left as it was passed in.
+    public Result search(Board board, int maxDepth, long timeLimitMs) {
+        return search(board, maxDepth, TimeManager.fixed(timeLimitMs));
+    }
+
+
+    public Result search(Board board, int maxDepth, TimeManager time) {
+        this.board = board;
+        this.nodes = 0;
+        this.cutoffs = 0;
+        this.firstMoveCutoffs = 0;
+        this.quiescenceNodes = 0;
+        this.seePruned = 0;
+        this.bitbaseHits = 0;
+        this.rootInBitbase = Bitbase.probeLoaded(board) != Bitbase.UNKNOWN;
+        if (!helper) this.stopped = false;
+        this.canStop = helper;
+        this.previousPv = new int[0];
+        this.startTime = System.nanoTime();
+        time.start(startTime);
+        this.deadline = time.hardDeadline();
+
+        if (agesTable) tt.newSearch();
+        ordering.newSearch();
+        evaluator.newSearch();
+
+        int depthLimit = maxDepth > 0 ? Math.min(maxDepth, MAX_PLY - 1) : MAX_PLY - 1;
+        Result best = null;
+
+        for (int depth = Math.min(firstDepth, depthLimit); depth <= depthLimit; depth++) {
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+
+            // A partial iteration is discarded; the first one always completes
+            if (stopped && best != null) break;
+
+            int[] pv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, pv, 0, pv.length);
+            previousPv = pv;
+            best = new Result(depth, score, pv, nodes, elapsedMs());
+            canStop = true;
+
+            if (listener != null) listener.accept(best);
+            if (pv.length == 0 || Math.abs(score) > MATE_BOUND) break;
+            if (!time.startNextIteration(pv[0], score, depth)) break;
+        }
+        return best;
+    }
+
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (depth == 0) return quiesce(alpha, beta, ply);
+
+        pvLength[ply] = ply;
+        nodes++;
+
+        if ((nodes & (CHECK_INTERVAL - 1)) == 0 && canStop && System.nanoTime() > deadline) {
+            stopped = true;
+        }
+        if (stopped && canStop) return 0;
+
+        if (ply > 0 && board.isRepetition()) return 0;
+        if (ply == MAX_PLY - 1) return evaluator.evaluate(board);
+
+        long key = board.getZobristKey();
+        long entry = tt.probe(key);
+        int hashMove = PackedMove.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry, ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = moveLists[ply];
+        board.generateLegalMoves(moves);
+        if (moves.isEmpty()) {
+            return board.isInCheck(board.sideToMove) ? -MATE + ply : 0;
+        }
+
+        // Once the root is in a bitbase every line is, and a win still has
+        // to be searched out to the mate; only the draws are cut off then
+        if (ply > 0) {
+            int known = Bitbase.probeLoaded(board);
+            if (known == Bitbase.DRAW || known != Bitbase.UNKNOWN && !rootInBitbase) {
+                bitbaseHits++;
+                if (known == Bitbase.DRAW) return 0;
+                return known * KNOWN_WIN + evaluator.evaluate(board);
+            }
+        }
+
+        // Follow the previous iteration's line first, otherwise the hash move
+        if (ply < previousPv.length && isOnPreviousPv(ply)) hashMove = previousPv[ply];
+        ordering.score(moves, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = ordering.next(moves, ply, i);
+            board.makeMove(move);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            board.unmakeMove(move);
+
+            if (stopped && canStop) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    pvTable[ply][ply] = move;
+                    System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = pvLength[ply + 1];
+                    if (alpha >= beta) {
+                        cutoffs++;
+                        if (i == 0) firstMoveCutoffs++;
+                        if (!PackedMove.isCapture(move)) ordering.onQuietCutoff(move, ply, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+            : bestScore > originalAlpha ? TranspositionTable.EXACT
+            : TranspositionTable.UPPER;
+        tt.store(key, bestMove, bestScore, depth, bound, ply);
+        return bestScore;
+    }
+
+
+    // Searches captures and promotions until the position is quiet, so the
+    // static evaluation is never taken in the middle of an exchange. Out of
+    // check the side to move may stand pat on the evaluation; in check every
+    // evasion is searched.
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        nodes++;
+        quiescenceNodes++;
+
+        if ((nodes & (CHECK_INTERVAL - 1)) == 0 && canStop && System.nanoTime() > deadline) {
+            stopped = true;
+        }
+        if (stopped && canStop) return 0;
+
+        boolean inCheck = board.isInCheck(board.sideToMove);
+        int standPat = -INFINITY;
+        if (!inCheck) {
+            standPat = evaluator.evaluate(board);
+            if (standPat >= beta || ply == MAX_PLY - 1) return standPat;
+            if (standPat > alpha) alpha = standPat;
+        } else if (ply == MAX_PLY - 1) {
+            return evaluator.evaluate(board);
+        }
+
+        MoveList moves = moveLists[ply];
+        if (inCheck) {
+            board.generateLegalMoves(moves);
+            if (moves.isEmpty()) return -MATE + ply;
+        } else {
+            board.generateLegalCaptures(moves);
+        }
+        ordering.score(moves, ply, PackedMove.NONE);
+
+        int bestScore = standPat;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = ordering.next(moves, ply, i);
+
+            if (!inCheck) {
+                int promotion = PackedMove.promotion(move);
+                if (PackedMove.isPromotion(move) && promotion != QUEEN) continue;
+
+                int gain = PackedMove.isCapture(move) ? Evaluator.PIECE_VALUES[PackedMove.captured(move) % 6] : 0;
+                if (promotion == QUEEN) gain += Evaluator.PIECE_VALUES[QUEEN] - Evaluator.PIECE_VALUES[0];
+                if (standPat + gain + DELTA_MARGIN <= alpha) continue;
+
+                // Taking a piece worth at least the attacker can never lose material
+                int attacker = Evaluator.PIECE_VALUES[PackedMove.piece(move) % 6];
+                if (attacker > gain && board.see(move) < 0) {
+                    seePruned++;
+                    continue;
+                }
+            }
+
+            board.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            board.unmakeMove(move);
+
+            if (stopped && canStop) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) break;
+                }
+            }
+        }
+        return bestScore;
+    }
+
+
+    // True while every move played so far in this branch matches the previous PV
+    private boolean isOnPreviousPv(int ply) {
+        for (int i = 0; i < ply; i++) {
+            if (pvTable[i][i] != previousPv[i]) return false;
+        }
+        return true;
+    }
+
+
+    long nodes() {
+        return nodes;
+    }
+
+
+    // Share of beta cutoffs produced by the first move searched in the last
+    // search; a measure of move ordering quality
+    public double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 0.0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+
+    // Share of the last search's nodes spent in quiescence
+    public double quiescenceShare() {
+        return nodes == 0 ? 0.0 : (double) quiescenceNodes / nodes;
+    }
+
+
+    // Captures skipped in quiescence because they lose material
+    public long seePruned() {
+        return seePruned;
+    }
+
+
+    // Nodes of the last search decided by an endgame bitbase
+    public long bitbaseHits() {
+        return bitbaseHits;
+    }
+
+
+    // Share of the last search's evaluations answered by the pawn hash table
+    public double pawnHashHitRate() {
+        return evaluator.pawnHashHitRate();
+    }
+
+
+    private long elapsedMs() {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+
+    public record Result(int depth, int score, int[] pv, long nodes, long timeMs) {
+
+        public int bestMove() {
+            return pv.length > 0 ? pv[0] : PackedMove.NONE;
+        }
+
+        public long nps() {
+            return nodes * 1000 / Math.max(1, timeMs);
+        }
+
+        public boolean isMate() {
+            return Math.abs(score) > MATE_BOUND;
+        }
+
+        // Moves until mate, negative when the side to move is getting mated
+        public int mateIn() {
+            int plies = MATE - Math.abs(score);
+            return (score > 0 ? 1 : -1) * (plies + 1) / 2;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("depth ").append(depth);
+            sb.append(isMate() ? " score mate " + mateIn() : " score cp " + score);
+            sb.append(" nodes ").append(nodes);
+            sb.append(" nps ").append(nps());
+            sb.append(" time ").append(timeMs);
+            sb.append(" pv");
+            for (int move : pv) sb.append(' ').append(PackedMove.toCoordinate(move));
+            return sb.toString();
+        }
+    }
+
+
+    public static void main(String[] args) {
+        String fen = Perft.START_FEN;
+        int depth = 0;
+        long movetime = 0;
+        long clock = 0;
+        long increment = 0;
+        int threads = 1;
+        int hashMb = DEFAULT_HASH_MB;
+
+        for (int i = 0; i < args.length; i++) {
+            // Every option takes a value
+            if (i + 1 == args.length) {
+                System.out.println(USAGE);
+                return;
+            }
+            switch (args[i]) {
+                case "--fen" -> fen = args[++i];
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--movetime" -> movetime = Long.parseLong(args[++i]);
+                case "--clock" -> clock = Long.parseLong(args[++i]);
+                case "--inc" -> increment = Long.parseLong(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--hash" -> hashMb = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (depth == 0 && movetime == 0 && clock == 0) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        Bitbase.loadDefault();
+        SmpSearch search = new SmpSearch(threads, hashMb);
+        search.setListener(System.out::println);
+        TimeManager time = clock > 0
+            ? TimeManager.forClock(clock, increment, 0)
+            : TimeManager.fixed(movetime);
+        Result result = search.search(new Board(fen), depth, time);
+        int best = result.bestMove();
+        Search main = search.mainThread();
+        System.out.printf("first-move cutoffs %.1f%%, quiescence nodes %.1f%%, SEE pruned %d, pawn hash hits %.1f%%, bitbase hits %d%n",
+            main.firstMoveCutoffRate() * 100, main.quiescenceShare() * 100, main.seePruned(),
+            main.pawnHashHitRate() * 100, main.bitbaseHits());
+        System.out.println("bestmove " + (best == PackedMove.NONE ? "(none)" : PackedMove.toCoordinate(best)));
+    }
+}
@@ -0,0 +1,105 @@
+package engine;
+
+import java.util.function.Consumer;
+
+import model.Board;
+
+// Lazy SMP: every thread runs its own iterative deepening on a private
+// Board copy and the threads only cooperate through the shared
+// transposition table. Helpers on odd ids start one ply deeper so the
+// threads spread over different depths. The main thread's result is the
+// one reported; when it finishes, the helpers are stopped.
+public class SmpSearch {
+
+    private final TranspositionTable tt;
+    private final Search[] searches;
+    private Consumer<Search.Result> listener;
+
+
+    public SmpSearch(int threads, int hashMb) {
+        this.tt = new TranspositionTable(hashMb);
+        this.searches = new Search[Math.max(1, threads)];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new Search(tt);
+            searches[i].agesTable = false;
+            if (i > 0) {
+                searches[i].helper = true;
+                searches[i].firstDepth = 1 + (i & 1);
+            }
+        }
+        searches[0].setListener(this::report);
+    }
+
+
+    public void setListener(Consumer<Search.Result> listener) {
+        this.listener = listener;
+    }
+
+
+    public int threads() {
+        return searches.length;
+    }
+
+
+    // The thread whose result is reported, for its search statistics
+    public Search mainThread() {
+        return searches[0];
+    }
+
+
+    public void clear() {
+        tt.clear();
+    }
+
+
+    public void stop() {
+        for (Search search : searches) search.stop();
+    }
+
+
+    // Same contract as Search.search; the board is left untouched
+    public Search.Result search(Board board, int maxDepth, long timeLimitMs) {
+        return search(board, maxDepth, TimeManager.fixed(timeLimitMs));
+    }
+
+
+    // Only the main thread keeps time; it stops the helpers when it is done
+    public Search.Result search(Board board, int maxDepth, TimeManager time) {
+        // Before the helpers start, so their first stores carry the new age
+        tt.newSearch();
+        Thread[] helpers = new Thread[searches.length - 1];
+        for (int i = 1; i < searches.length; i++) searches[i].rearm();
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = searches[i + 1];
+            Board copy = new Board(board);
+            helpers[i] = new Thread(() -> helper.search(copy, maxDepth, TimeManager.infinite()), "search-helper-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        Search.Result result = searches[0].search(new Board(board), maxDepth, time);
+
+        for (int i = 1; i < searches.length; i++) searches[i].stop();
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return withTotalNodes(result);
+    }
+
+
+    private void report(Search.Result result) {
+        if (listener != null) listener.accept(withTotalNodes(result));
+    }
+
+
+    private Search.Result withTotalNodes(Search.Result result) {
+        if (result == null) return null;
+        long nodes = 0;
+        for (Search search : searches) nodes += search.nodes();
+        return new Search.Result(result.depth(), result.score(), result.pv(), nodes, result.timeMs());
+    }
+}
@@ -0,0 +1,121 @@
+package engine;
+
+import model.Color;
+import model.Timer;
+
+// Budgets the thinking time of one move. The soft limit decides whether
+// another iteration is started; the hard limit aborts an iteration that
+// is still running, and is what Search polls every few thousand nodes.
+// With a clock the soft limit shrinks while the best move stays the same
+// and grows when the score falls, but never past the hard limit.
+public final class TimeManager {
+
+    // Moves the remaining time is spread over when the GUI gives no count
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    // Kept back for move transmission and process overhead
+    private static final long OVERHEAD_MS = 30;
+
+    // Soft limit scale by how many iterations in a row chose the same move
+    private static final double[] STABILITY_SCALE = { 1.25, 1.0, 0.85, 0.7, 0.6, 0.5 };
+
+    private static final int SCORE_DROP = 30;
+
+    private final long softMs;
+    private final long hardMs;
+    private final boolean adaptive;
+
+    private long startTime;
+    private int lastBestMove;
+    private int lastScore;
+    private int stableIterations;
+
+
+    private TimeManager(long softMs, long hardMs, boolean adaptive) {
+        this.softMs = softMs;
+        this.hardMs = hardMs;
+        this.adaptive = adaptive;
+    }
+
+
+    // No limit: the search runs until its depth limit or stop()
+    public static TimeManager infinite() {
+        return new TimeManager(0, 0, false);
+    }
+
+
+    // A fixed time per move; no iteration is started past half of it,
+    // since it would not finish
+    public static TimeManager fixed(long moveTimeMs) {
+        if (moveTimeMs <= 0) return infinite();
+        return new TimeManager(Math.max(1, moveTimeMs / 2), moveTimeMs, false);
+    }
+
+
+    // Budget from the time left on the clock and the increment per move;
+    // movesToGo is 0 when the whole game has to be played in that time
+    public static TimeManager forClock(long remainingMs, long incrementMs, int movesToGo) {
+        long usable = Math.max(1, remainingMs - OVERHEAD_MS);
+        int moves = movesToGo > 0 ? Math.min(movesToGo, DEFAULT_MOVES_TO_GO) : DEFAULT_MOVES_TO_GO;
+
+        long target = usable / moves + incrementMs * 3 / 4;
+        long hard = Math.min(usable / 3 + incrementMs, target * 5);
+        // The increment only arrives after the move, so never plan on more
+        // than half of what is on the clock now
+        hard = Math.min(hard, usable / 2);
+        long soft = Math.min(target, hard);
+        return new TimeManager(Math.max(1, soft), Math.max(1, hard), true);
+    }
+
+
+    public static TimeManager forClock(Timer timer, Color side) {
+        return forClock(timer.getRemainingTimeMs(side), timer.getIncrementMs(side), 0);
+    }
+
+
+    public long softLimitMs() {
+        return softMs;
+    }
+
+
+    public long hardLimitMs() {
+        return hardMs;
+    }
+
+
+    void start(long startNanos) {
+        this.startTime = startNanos;
+        this.lastBestMove = 0;
+        this.lastScore = 0;
+        this.stableIterations = 0;
+    }
+
+
+    // System.nanoTime() past which the search is stopped, or Long.MAX_VALUE
+    long hardDeadline() {
+        return hardMs > 0 ? startTime + hardMs * 1_000_000 : Long.MAX_VALUE;
+    }
+
+
+    // Called after every completed iteration; false when there is not
+    // enough time left for the next one
+    boolean startNextIteration(int bestMove, int score, int depth) {
+        if (softMs == 0) return true;
+
+        double scale = 1.0;
+        if (adaptive) {
+            stableIterations = bestMove == lastBestMove ? stableIterations + 1 : 0;
+            scale = STABILITY_SCALE[Math.min(stableIterations, STABILITY_SCALE.length - 1)];
+
+            // Spend longer looking for a way out when the score falls
+            if (depth > 1 && score < lastScore - SCORE_DROP) {
+                scale *= score < lastScore - 2 * SCORE_DROP ? 2.0 : 1.5;
+            }
+            lastBestMove = bestMove;
+            lastScore = score;
+        }
+
+        long elapsedMs = (System.nanoTime() - startTime) / 1_000_000;
+        return elapsedMs < Math.min(softMs * scale, hardMs);
+    }
+}
@@ -0,0 +1,132 @@
+package engine;
+
+import java.util.Arrays;
+
+// Fixed-size hash table shared by all search threads, stored as pairs of
+// longs (key ^ data, data) in one flat array. Writes take no lock: a slot
+// torn by two racing writers fails the key check on probe and is treated
+// as a miss.
+//
+// data layout:
+//   bits  0-31  best move (PackedMove, NONE if unknown)
+//   bits 32-47  score (signed, mate scores relative to this node)
+//   bits 48-55  depth
+//   bits 56-57  bound
+//   bits 58-63  age of the search that wrote it
+public class TranspositionTable {
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private final long[] table;
+    private final int mask;
+    // Written by the thread starting a search, read by every searching thread
+    private volatile int age;
+
+
+    public TranspositionTable(int sizeMb) {
+        int entries = Integer.highestOneBit((int) Math.min(Math.max(1, sizeMb) * 1024L * 1024L / 16, 1 << 30));
+        this.table = new long[entries * 2];
+        this.mask = entries - 1;
+    }
+
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+
+    // Called once per search so entries from older searches can be replaced first
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+
+    // Returns the stored data for key, or 0 on a miss
+    public long probe(long key) {
+        int i = index(key);
+        long data = table[i + 1];
+        return (table[i] ^ data) == key ? data : 0L;
+    }
+
+
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int i = index(key);
+        long oldData = table[i + 1];
+        boolean sameKey = (table[i] ^ oldData) == key;
+
+        // Keep a deeper entry of the current search for a different position
+        if (!sameKey && age(oldData) == age && depth(oldData) > depth) return;
+
+        // Keep the known best move when this visit found none
+        if (move == 0 && sameKey) move = move(oldData);
+
+        long data = (move & 0xFFFFFFFFL)
+            | (toStored(score, ply) & 0xFFFFL) << 32
+            | (long) (depth & 0xFF) << 48
+            | (long) bound << 56
+            | (long) age << 58;
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+
+    // Permille of a sample of slots written by the current search
+    public int hashfull() {
+        int sample = Math.min(1000, table.length / 2);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * 2 + 1];
+            if (data != 0 && age(data) == age) used++;
+        }
+        return used * 1000 / sample;
+    }
+
+
+    private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+
+
+    public static int move(long data) {
+        return (int) data;
+    }
+
+
+    public static int score(long data, int ply) {
+        return fromStored((short) (data >>> 32), ply);
+    }
+
+
+    public static int depth(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+
+    public static int bound(long data) {
+        return (int) (data >>> 56) & 0x3;
+    }
+
+
+    private static int age(long data) {
+        return (int) (data >>> 58);
+    }
+
+
+    // Mate scores are stored as distance from this node rather than from
+    // the root, so they stay correct when reached through another path
+    private static int toStored(int score, int ply) {
+        if (score > Search.MATE - Search.MAX_PLY) return score + ply;
+        if (score < -Search.MATE + Search.MAX_PLY) return score - ply;
+        return score;
+    }
+
+
+    private static int fromStored(int score, int ply) {
+        if (score > Search.MATE - Search.MAX_PLY) return score - ply;
+        if (score < -Search.MATE + Search.MAX_PLY) return score + ply;
+        return score;
+    }
+}
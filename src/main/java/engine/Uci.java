@@ -0,0 +1,316 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import model.Bitbase;
+import model.Board;
+import model.Color;
+import model.MoveList;
+import model.PackedMove;
+
+// Universal Chess Interface front-end, so the engine can be driven by a
+// GUI or a tournament manager instead of the interactive CLI. Commands are
+// read on the calling thread and every "go" searches on a worker thread,
+// so "stop" and "isready" are answered while the engine is thinking.
+public class Uci {
+
+    private static final String NAME = "LukOilNeftohim Chess";
+
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private SmpSearch search = new SmpSearch(1, Search.DEFAULT_HASH_MB);
+    private int threads = 1;
+    private int hashMb = Search.DEFAULT_HASH_MB;
+
+    private Board board = new Board();
+
+    // Books are keyed by Board's Zobrist keys, not Polyglot's Random64, so
+    // a third-party Polyglot book would never hit; the book is opt-in
+    private boolean ownBook = false;
+    private String bookFile = "";
+    private OpeningBook book;
+    private boolean bookLoaded;
+    private Thread worker;
+
+    // Set for "go infinite": the best move is held back until "stop"
+    private boolean pondering;
+
+    // A stop that arrives while the worker is still starting its search
+    // would be cleared by it; the listener repeats it after the iteration
+    private volatile boolean stopRequested;
+
+
+    public Uci(BufferedReader in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+        search.setListener(this::report);
+    }
+
+
+    public void run() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.trim().split("\\s+");
+            switch (tokens[0]) {
+                case "uci" -> {
+                    out.println("id name " + NAME);
+                    out.println("id author LukOilNeftohim");
+                    out.println("option name Hash type spin default " + Search.DEFAULT_HASH_MB + " min 1 max 4096");
+                    out.println("option name Threads type spin default 1 min 1 max 64");
+                    out.println("option name OwnBook type check default false");
+                    out.println("option name BookFile type string default <empty>");
+                    out.println("uciok");
+                }
+                case "isready" -> out.println("readyok");
+                case "setoption" -> setOption(tokens);
+                case "ucinewgame" -> {
+                    waitForSearch();
+                    search.clear();
+                }
+                case "position" -> {
+                    waitForSearch();
+                    position(tokens);
+                }
+                case "go" -> {
+                    waitForSearch();
+                    go(tokens);
+                }
+                case "stop" -> stop();
+                case "quit" -> {
+                    waitForSearch();
+                    return;
+                }
+                default -> {
+                    if (!tokens[0].isEmpty()) out.println("info string Unknown command: " + tokens[0]);
+                }
+            }
+        }
+        waitForSearch();
+    }
+
+
+    private void setOption(String[] tokens) {
+        String name = null;
+        String value = null;
+        for (int i = 1; i < tokens.length - 1; i++) {
+            if (tokens[i].equals("name")) name = tokens[i + 1];
+            if (tokens[i].equals("value")) {
+                // A file name may contain spaces
+                value = String.join(" ", Arrays.copyOfRange(tokens, i + 1, tokens.length));
+                break;
+            }
+        }
+        if (name == null || value == null) return;
+
+        waitForSearch();
+        try {
+            switch (name.toLowerCase()) {
+                case "hash" -> hashMb = Math.max(1, Integer.parseInt(value));
+                case "threads" -> threads = Math.max(1, Integer.parseInt(value));
+                case "ownbook" -> {
+                    ownBook = Boolean.parseBoolean(value);
+                    return;
+                }
+                case "bookfile" -> {
+                    bookFile = value.equals("<empty>") ? "" : value;
+                    bookLoaded = false;
+                    return;
+                }
+                default -> {
+                    out.println("info string Unknown option: " + name);
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            out.println("info string Invalid value for " + name + ": " + value);
+            return;
+        }
+        search = new SmpSearch(threads, hashMb);
+        search.setListener(this::report);
+    }
+
+
+    // position [startpos | fen <fen>] [moves <move>...]. The moves are
+    // matched against the legal move list and played with makeMove(int),
+    // without the check and mate detection of Board.move.
+    private void position(String[] tokens) {
+        int i = 1;
+        Board next;
+        if (i < tokens.length && tokens[i].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (i++; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                if (fen.length() > 0) fen.append(' ');
+                fen.append(tokens[i]);
+            }
+            try {
+                next = new Board(fen.toString());
+            } catch (RuntimeException e) {
+                out.println("info string Invalid FEN: " + fen);
+                return;
+            }
+        } else {
+            next = new Board();
+            i++;
+        }
+
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            MoveList moves = new MoveList();
+            for (i++; i < tokens.length; i++) {
+                int move = findMove(next, moves, tokens[i]);
+                if (move == PackedMove.NONE) {
+                    out.println("info string Illegal move: " + tokens[i]);
+                    break;
+                }
+                next.makeMove(move);
+            }
+        }
+        board = next;
+    }
+
+
+    private static int findMove(Board board, MoveList moves, String coordinate) {
+        moves.clear();
+        board.generateLegalMoves(moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (PackedMove.toCoordinate(move).equals(coordinate)) return move;
+        }
+        return PackedMove.NONE;
+    }
+
+
+    private void go(String[] tokens) {
+        long wtime = 0, btime = 0, winc = 0, binc = 0, movetime = 0;
+        int depth = 0;
+        int movesToGo = 0;
+        boolean infinite = false;
+
+        try {
+            for (int i = 1; i < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case "wtime" -> wtime = Long.parseLong(tokens[++i]);
+                    case "btime" -> btime = Long.parseLong(tokens[++i]);
+                    case "winc" -> winc = Long.parseLong(tokens[++i]);
+                    case "binc" -> binc = Long.parseLong(tokens[++i]);
+                    case "movestogo" -> movesToGo = Integer.parseInt(tokens[++i]);
+                    case "depth" -> depth = Integer.parseInt(tokens[++i]);
+                    case "movetime" -> movetime = Long.parseLong(tokens[++i]);
+                    case "infinite" -> infinite = true;
+                    default -> { }
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            out.println("info string Invalid go command");
+            return;
+        }
+
+        // A book move is answered at once, without starting a search
+        if (!infinite && depth == 0) {
+            int move = bookMove();
+            if (move != PackedMove.NONE) {
+                out.println("bestmove " + PackedMove.toCoordinate(move));
+                return;
+            }
+        }
+
+        boolean white = board.sideToMove == Color.WHITE;
+        long remaining = white ? wtime : btime;
+        TimeManager time;
+        if (movetime > 0) {
+            time = TimeManager.fixed(movetime);
+        } else if (remaining > 0 && !infinite) {
+            time = TimeManager.forClock(remaining, white ? winc : binc, movesToGo);
+        } else {
+            time = TimeManager.infinite();
+        }
+
+        Board position = board;
+        int maxDepth = depth;
+        SmpSearch engine = search;
+        stopRequested = false;
+        synchronized (this) {
+            pondering = infinite;
+        }
+        worker = new Thread(() -> {
+            // The GUI waits for a bestmove, so one is sent even if the search fails
+            int best = PackedMove.NONE;
+            try {
+                Search.Result result = engine.search(position, maxDepth, time);
+                if (result != null) best = result.bestMove();
+            } catch (RuntimeException e) {
+                out.println("info string Search failed: " + e);
+            }
+            awaitStop();
+            out.println("bestmove " + (best == PackedMove.NONE ? "0000" : PackedMove.toCoordinate(best)));
+        }, "uci-search");
+        worker.start();
+    }
+
+
+    private int bookMove() {
+        if (!ownBook || bookFile.isEmpty()) return PackedMove.NONE;
+        if (!bookLoaded) {
+            book = OpeningBook.openIfPresent(Path.of(bookFile));
+            bookLoaded = true;
+        }
+        return book != null ? book.probe(board) : PackedMove.NONE;
+    }
+
+
+    private void report(Search.Result result) {
+        out.println("info " + result);
+        if (stopRequested) search.stop();
+    }
+
+
+    private void stop() {
+        stopRequested = true;
+        search.stop();
+        synchronized (this) {
+            pondering = false;
+            notifyAll();
+        }
+    }
+
+
+    private synchronized void awaitStop() {
+        while (pondering) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+
+    // Commands that change the engine's state first stop a running search
+    // and wait for its bestmove, as a GUI sending them mid-search expects
+    private void waitForSearch() {
+        if (worker == null) return;
+        stop();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+
+    public static void main(String[] args) {
+        Bitbase.loadDefault();
+        try {
+            new Uci(new BufferedReader(new InputStreamReader(System.in)), System.out).run();
+        } catch (IOException e) {
+            System.err.println("Error reading input: " + e.getMessage());
+        }
+    }
+}
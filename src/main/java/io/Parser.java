@@ -6,14 +6,15 @@ import model.*;
 
 public class Parser {
 
+    private static final Pattern TAG = Pattern.compile("\\[(\\w+)\\s+\"([^\"]*)\"\\]");
     
     public Game parseGame(String text) {
         Game game = new Game();
 
-        game.getTags().putAll(parseTags(text));
+        int movetext = movetextStart(text);
+        game.getTags().putAll(parseTags(text.substring(0, movetext)));
 
-        int lastTag = text.lastIndexOf(']');
-        String movesBlock = (lastTag == -1) ? text : text.substring(lastTag + 1);
+        String movesBlock = text.substring(movetext);
 
         List<Move> moves = parseMoves(movesBlock);
         game.getMoves().addAll(moves);
@@ -31,11 +32,26 @@ public class Parser {
     }
     
     
+    // End of the tag section: the first line that is not a tag. Comments
+    // in the movetext may contain ']' (e.g. [%clk ...]), so the last ']'
+    // in the text is not the end of the tags.
+    private int movetextStart(String text) {
+        int pos = 0;
+        while (pos < text.length()) {
+            int end = text.indexOf('\n', pos);
+            if (end == -1) end = text.length();
+            String line = text.substring(pos, end).trim();
+            if (!line.isEmpty() && !line.startsWith("[")) return pos;
+            pos = end + 1;
+        }
+        return text.length();
+    }
+
+    
     private Map<String, String> parseTags(String text) {
         Map<String, String> tags = new HashMap<>();
 
-        Pattern p = Pattern.compile("\\[(\\w+)\\s+\"([^\"]*)\"\\]");
-        Matcher m = p.matcher(text);
+        Matcher m = TAG.matcher(text);
 
         while (m.find()) {
             tags.put(m.group(1), m.group(2));
@@ -48,14 +64,8 @@ public class Parser {
     private List<Move> parseMoves(String text) {
         List<Move> moves = new ArrayList<>();
 
-        text = text.replaceAll("\\{[^}]*\\}", ""); // comments
-        text = text.replaceAll("\\d+\\.", "");     // move numbers
-        text = text.replaceAll("\\s+", " ").trim();
-
-        String[] tokens = text.split(" ");
-
         Color side = Color.WHITE;
-        for (String token : tokens) {
+        for (String token : tokenize(text)) {
             if (isResult(token)) break;
             Move move = parseMove(token, side);
             moves.add(move);
@@ -66,12 +76,63 @@ public class Parser {
     }
 
     
+    // The SAN tokens of the movetext in one pass: comments, variations
+    // (also nested), NAGs, move numbers (also "12...") and !? are dropped
+    private List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int depth = 0;
+        int i = 0;
+        int n = text.length();
+
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '{') {
+                int end = text.indexOf('}', i);
+                i = end == -1 ? n : end + 1;
+            } else if (c == ';') {
+                int end = text.indexOf('\n', i);
+                i = end == -1 ? n : end + 1;
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                if (depth > 0) depth--;
+                i++;
+            } else if (Character.isWhitespace(c) || c == '!' || c == '?') {
+                i++;
+            } else {
+                int start = i;
+                while (i < n && !isDelimiter(text.charAt(i))) i++;
+                if (depth == 0 && c != '$') addToken(tokens, text, start, i);
+            }
+        }
+        return tokens;
+    }
+
+    
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || c == '{' || c == ';' || c == '(' || c == ')' || c == '!' || c == '?';
+    }
+
+    
+    // Adds text[start, end) without a leading move number ("12." or "12...")
+    private static void addToken(List<String> tokens, String text, int start, int end) {
+        int i = start;
+        while (i < end && Character.isDigit(text.charAt(i))) i++;
+        if (i > start && i < end && text.charAt(i) == '.') {
+            while (i < end && text.charAt(i) == '.') i++;
+            start = i;
+        }
+        if (start < end) tokens.add(text.substring(start, end));
+    }
+
+    
     private Move parseMove(String token, Color color) {
         Move move = new Move();
         move.disambiguation = -1;
 
         if (parseCastling(move, token)) {
-            move.piece = new Piece(Type.KING, color);
+            move.piece = Piece.of(Type.KING, color);
             return move;
         }
 
@@ -92,7 +153,9 @@ public class Parser {
 
     
     private boolean parseCastling(Move move, String token) {
-        switch (token.replaceAll("[+#]", "")) {
+        if (token.charAt(0) != 'O') return false;
+
+        switch (stripCheck(token)) {
             case "O-O" -> {
                 move.flags |= Move.FLAG_SHORT_CASTLE;
                 return true;
@@ -108,6 +171,13 @@ public class Parser {
     }
 
     
+    private static String stripCheck(String token) {
+        int end = token.length();
+        while (end > 0 && (token.charAt(end - 1) == '+' || token.charAt(end - 1) == '#')) end--;
+        return token.substring(0, end);
+    }
+
+    
     private String parseCheckOrMate(Move move, String token) {
         if (token.isEmpty()) return token;
         
@@ -145,7 +215,7 @@ public class Parser {
                 default -> Type.QUEEN; // default to queen
             };
             
-            move.piece = new Piece(promotionType, color);
+            move.promotion = promotionType;
         }
 
         return token.substring(0, idx);
@@ -211,7 +281,7 @@ public class Parser {
             default -> Type.PAWN;
         };
 
-        if (move.piece == null) move.piece = new Piece(type, color);
-        else move.piece = new Piece(type, move.piece.color());
+        if (move.piece == null) move.piece = Piece.of(type, color);
+        else move.piece = Piece.of(type, move.piece.color());
     }
 }
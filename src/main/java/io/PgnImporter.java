@@ -0,0 +1,340 @@
+package io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import model.Board;
+import model.Game;
+import model.Move;
+
+// Imports a PGN file on several cores. The file is cut into chunks of
+// about chunkBytes, each ending just before an "[Event" tag that follows
+// a blank line, and every chunk is read, parsed and replayed through
+// Board.resolveAndMakeMove by its own task on a ForkJoinPool. The chunk
+// results are handed to the sink in file order, and only a bounded number
+// of chunks is in flight, so memory stays independent of the file size.
+// A stretch without such a boundary within MAX_CHUNK_FACTOR * chunkBytes
+// (e.g. games not separated by blank lines) is streamed game by game on
+// the calling thread instead of being read into one buffer.
+public class PgnImporter {
+
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private static final byte[] EVENT = "[Event".getBytes(StandardCharsets.US_ASCII);
+    private static final int SCAN_BUFFER = 1 << 16;
+    private static final int MAX_CHUNK_FACTOR = 4;
+
+    private static final String USAGE = "Usage: import <games.pgn> [--threads <n>] [--chunk <KB>]";
+
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+    private final long maxChunkBytes;
+
+
+    public PgnImporter(int threads, int chunkBytes) {
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.chunkBytes = Math.max(SCAN_BUFFER, chunkBytes);
+        this.maxChunkBytes = Math.min((long) this.chunkBytes * MAX_CHUNK_FACTOR, Integer.MAX_VALUE - 8);
+    }
+
+
+    public record Report(long games, long skipped, long illegal, long bytes, long nanos) {
+
+        public double gamesPerSecond() {
+            return nanos > 0 ? games * 1e9 / nanos : 0;
+        }
+
+
+        public double megabytesPerSecond() {
+            return nanos > 0 ? bytes * 1e3 / nanos : 0;
+        }
+
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%d unreadable, %d illegal), %.1f MB in %.2f s: %.0f games/s, %.1f MB/s",
+                games, skipped, illegal, bytes / 1e6, nanos / 1e9, gamesPerSecond(), megabytesPerSecond());
+        }
+    }
+
+
+    // Replays every game of the file and passes the fully legal ones to
+    // the sink, in file order and on the calling thread. Each move is left
+    // resolved: disambiguation holds its from square, as after
+    // Board.resolveAndMakeMove.
+    public Report importFile(Path file, Consumer<Game> sink) throws IOException {
+        long start = System.nanoTime();
+        long[] games = { 0 };
+        long skipped = 0, illegal = 0;
+        Consumer<Game> counted = game -> {
+            sink.accept(game);
+            games[0]++;
+        };
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Span> spans = chunkSpans(channel);
+            int window = 2 * pool.getParallelism();
+            Deque<ChunkTask> inFlight = new ArrayDeque<>();
+            int next = 0;
+
+            while (next < spans.size() || !inFlight.isEmpty()) {
+                while (next < spans.size() && inFlight.size() < window) {
+                    ChunkTask task = new ChunkTask(channel, spans.get(next));
+                    // Streamed spans wait for their turn on this thread
+                    if (!task.span.streamed()) pool.execute(task);
+                    inFlight.add(task);
+                    next++;
+                }
+
+                ChunkTask head = inFlight.remove();
+                Chunk chunk;
+                try {
+                    chunk = head.span.streamed() ? head.stream(counted) : head.join();
+                } catch (UncheckedIOException e) {
+                    inFlight.forEach(task -> task.cancel(true));
+                    throw new IOException("Cannot read " + file, e);
+                }
+                chunk.games.forEach(counted);
+                skipped += chunk.skipped;
+                illegal += chunk.illegal;
+            }
+            return new Report(games[0], skipped, illegal, channel.size(), System.nanoTime() - start);
+        }
+    }
+
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+
+    // A part of the file that starts at a game; a streamed span found no
+    // game boundary within maxChunkBytes and is never read whole
+    private record Span(long start, long end, boolean streamed) {
+    }
+
+
+    // Spans of about chunkBytes covering the file; a boundary is the '[' of
+    // an "[Event" at the start of a line that follows a blank line
+    private List<Span> chunkSpans(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Span> spans = new ArrayList<>();
+
+        long start = 0;
+        while (start < size) {
+            long limit = Math.min(size, start + maxChunkBytes);
+            long end = start + chunkBytes < size ? nextGameStart(channel, start + chunkBytes, limit) : size;
+            if (end < limit || limit == size) {
+                spans.add(new Span(start, end, false));
+            } else {
+                // No boundary within the cap: stream up to the next one
+                end = nextGameStart(channel, limit, size);
+                spans.add(new Span(start, end, true));
+            }
+            start = end;
+        }
+        return spans;
+    }
+
+
+    // Offset of the first game boundary in [from, limit), or limit
+    private static long nextGameStart(FileChannel channel, long from, long limit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        // Three bytes before the candidate for the blank line ("\n\n" or "\n\r\n")
+        long pos = from - 3;
+
+        while (pos < limit) {
+            buffer.clear();
+            int n = channel.read(buffer, pos);
+            if (n <= 0) break;
+            byte[] b = buffer.array();
+
+            for (int i = 3; i + EVENT.length <= n && pos + i < limit; i++) {
+                if (b[i] == '[' && b[i - 1] == '\n' && startsWithEvent(b, i)
+                        && (b[i - 2] == '\n' || b[i - 2] == '\r' && b[i - 3] == '\n')) {
+                    return pos + i;
+                }
+            }
+            if (pos + n >= limit) break;
+            // Overlap, so a match across two reads is still found
+            pos += Math.max(1, n - EVENT.length - 3);
+        }
+        return limit;
+    }
+
+
+    private static boolean startsWithEvent(byte[] b, int i) {
+        for (int k = 0; k < EVENT.length; k++) {
+            if (b[i + k] != EVENT[k]) return false;
+        }
+        return true;
+    }
+
+
+    private record Chunk(List<Game> games, long skipped, long illegal) {
+    }
+
+
+    private static final class ChunkTask extends RecursiveTask<Chunk> {
+
+        private final FileChannel channel;
+        private final Span span;
+
+
+        ChunkTask(FileChannel channel, Span span) {
+            this.channel = channel;
+            this.span = span;
+        }
+
+
+        @Override
+        protected Chunk compute() {
+            long length = span.end() - span.start();
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Chunk too large to buffer: " + length + " bytes");
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) length);
+            try {
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes, span.start() + bytes.position()) < 0) break;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            List<Game> games = new ArrayList<>();
+            long[] illegal = { 0 };
+            PgnReader reader = new PgnReader(new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes.array(), 0, bytes.position()), PgnReader.decoder())));
+            replayAll(reader, games::add, illegal);
+            return new Chunk(games, reader.skipped(), illegal[0]);
+        }
+
+
+        // Replays the span one game at a time straight into the sink
+        Chunk stream(Consumer<Game> sink) {
+            long[] illegal = { 0 };
+            PgnReader reader = new PgnReader(new BufferedReader(new InputStreamReader(
+                new SpanInputStream(channel, span.start(), span.end()), PgnReader.decoder()), SCAN_BUFFER));
+            replayAll(reader, sink, illegal);
+            return new Chunk(List.of(), reader.skipped(), illegal[0]);
+        }
+
+
+        private static void replayAll(PgnReader reader, Consumer<Game> sink, long[] illegal) {
+            while (reader.hasNext()) {
+                Game game = reader.next();
+                if (replay(game)) sink.accept(game);
+                else illegal[0]++;
+            }
+        }
+    }
+
+
+    // Positional reads of [pos, end), so the channel can be shared with
+    // the chunk tasks
+    private static final class SpanInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long pos;
+
+
+        SpanInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.pos = start;
+            this.end = end;
+        }
+
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos >= end) return -1;
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - pos)), pos);
+            if (n > 0) pos += n;
+            return n;
+        }
+    }
+
+
+    // Plays the game from its start position (the FEN tag, if any)
+    static boolean replay(Game game) {
+        try {
+            String fen = game.getTags().get("FEN");
+            Board board = fen != null ? new Board(fen) : new Board();
+            for (Move move : game.getMoves()) board.resolveAndMakeMove(move);
+            return true;
+        } catch (Board.IllegalMoveException | RuntimeException e) {
+            return false;
+        }
+    }
+
+
+    private static int positive(String value, int max) {
+        int n = Integer.parseInt(value);
+        if (n <= 0 || n > max) {
+            throw new IllegalArgumentException("Value out of range 1.." + max + ": " + value);
+        }
+        return n;
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        Path input = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkBytes = DEFAULT_CHUNK_BYTES;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].startsWith("--") && i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--threads" -> threads = positive(args[++i], 0x7FFF); // ForkJoinPool limit
+                    case "--chunk" -> chunkBytes = positive(args[++i], Integer.MAX_VALUE >> 10) << 10;
+                    default -> input = Path.of(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            input = null;
+        }
+        if (input == null || !Files.isRegularFile(input)) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        long[] moves = { 0 };
+        PgnImporter importer = new PgnImporter(threads, chunkBytes);
+        try {
+            Report report = importer.importFile(input, game -> moves[0] += game.getMoves().size());
+            System.out.printf("%s, %d moves replayed on %d threads%n", report, moves[0], threads);
+        } finally {
+            importer.shutdown();
+        }
+    }
+}
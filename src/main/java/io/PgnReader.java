@@ -0,0 +1,148 @@
+package io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import model.Game;
+
+// Reads a multi-game PGN file one game at a time through a buffered
+// FileChannel, so only the current game is ever held in memory. A game
+// ends where a tag line follows its movetext; games that fail to parse
+// are skipped and counted.
+public class PgnReader implements Iterator<Game>, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedReader reader;
+    private final Parser parser = new Parser();
+
+    // First line of the next game, already read while finding the end of
+    // the previous one
+    private String pending;
+    private Game next;
+    private boolean finished;
+    private long games;
+    private long skipped;
+
+
+    public PgnReader(Path file) throws IOException {
+        this(new BufferedReader(
+            Channels.newReader(FileChannel.open(file, StandardOpenOption.READ), decoder(), BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+
+    // Games from any text source, e.g. one chunk of a file in PgnImporter
+    PgnReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+
+    // Malformed bytes become U+FFFD instead of failing the whole file
+    static CharsetDecoder decoder() {
+        return StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+
+    // Games in file order; closing the stream closes the file
+    public static Stream<Game> stream(Path file) throws IOException {
+        PgnReader reader = new PgnReader(file);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(() -> {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+
+
+    // The raw text of the next game, or null at the end of the file
+    public String nextGameText() throws IOException {
+        StringBuilder game = new StringBuilder();
+        boolean inMoves = false;
+
+        String line = pending != null ? pending : reader.readLine();
+        pending = null;
+        for (; line != null; line = reader.readLine()) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("[")) {
+                if (inMoves) {
+                    pending = line;
+                    break;
+                }
+            } else if (!trimmed.isEmpty() && !trimmed.startsWith("%")) {
+                inMoves = true;
+            }
+            game.append(line).append('\n');
+        }
+        return inMoves ? game.toString() : null;
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) {
+            String text;
+            try {
+                text = nextGameText();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (text == null) {
+                finished = true;
+                break;
+            }
+            try {
+                next = parser.parseGame(text);
+                games++;
+            } catch (IllegalArgumentException e) {
+                skipped++;
+            }
+        }
+        return next != null;
+    }
+
+
+    @Override
+    public Game next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Game game = next;
+        next = null;
+        return game;
+    }
+
+
+    public long games() {
+        return games;
+    }
+
+
+    public long skipped() {
+        return skipped;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -1,18 +1,21 @@
 package io;
 
 import java.io.*;
+import java.nio.file.Path;
 
 import model.Game;
 
 public class Storage {
 
+    // The first game of the file; the rest of a large file is never read
     public static Game readGame(String fileName) {
-        String text = readPGN(fileName);
-
-        Parser parser = new Parser();
-        Game game = parser.parseGame(text);
-
-        return game;
+        try (PgnReader reader = new PgnReader(Path.of(fileName))) {
+            String text = reader.nextGameText();
+            if (text == null) throw new IllegalArgumentException("No game in " + fileName);
+            return new Parser().parseGame(text);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read PGN: " + fileName, e);
+        }
     }
 
     public static void writeGame(String fileName, Game game) {
@@ -49,19 +52,6 @@ public class Storage {
         writePGN(fileName, sb.toString().trim());
     }
 
-    private static String readPGN(String fileName) {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append("\n");
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot read PGN: " + fileName, e);
-        }
-        return sb.toString();
-    }
-
     private static void writePGN(String fileName, String content) {
         try (FileWriter fw = new FileWriter(fileName)) {
             fw.write(content);
@@ -0,0 +1,64 @@
+package model;
+
+// Precomputed non-slider attack sets and square-relation tables. Sliders
+// are looked up through MagicBitboards; everything here is a single
+// array load.
+final class Attacks {
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+
+    // PAWN[color.ordinal()][sq]: squares a pawn of that color on sq attacks
+    static final long[][] PAWN = new long[2][64];
+
+    // BETWEEN[a][b]: squares strictly between a and b on a shared rank, file
+    // or diagonal. LINE[a][b]: the whole line through both. Empty otherwise.
+    static final long[][] BETWEEN = new long[64][64];
+    static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_STEPS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT[sq] = steps(sq, KNIGHT_STEPS);
+            KING[sq] = steps(sq, KING_STEPS);
+            PAWN[Color.WHITE.ordinal()][sq] = steps(sq, new int[][] {{1, -1}, {1, 1}});
+            PAWN[Color.BLACK.ordinal()][sq] = steps(sq, new int[][] {{-1, -1}, {-1, 1}});
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int[] d : KING_STEPS) {
+                long ray = 0L;
+                long backRay = 0L;
+                for (int r = from / 8 - d[0], f = from % 8 - d[1]; onBoard(r, f); r -= d[0], f -= d[1]) {
+                    backRay |= 1L << (r * 8 + f);
+                }
+                for (int r = from / 8 + d[0], f = from % 8 + d[1]; onBoard(r, f); r += d[0], f += d[1]) {
+                    int to = r * 8 + f;
+                    BETWEEN[from][to] = ray;
+                    ray |= 1L << to;
+                }
+                long line = ray | backRay | 1L << from;
+                for (long targets = ray; targets != 0; targets &= targets - 1) {
+                    LINE[from][Long.numberOfTrailingZeros(targets)] = line;
+                }
+            }
+        }
+    }
+
+    private Attacks() {}
+
+    private static long steps(int sq, int[][] deltas) {
+        long attacks = 0L;
+        for (int[] d : deltas) {
+            int r = sq / 8 + d[0];
+            int f = sq % 8 + d[1];
+            if (onBoard(r, f)) attacks |= 1L << (r * 8 + f);
+        }
+        return attacks;
+    }
+
+    private static boolean onBoard(int rank, int file) {
+        return rank >= 0 && rank < 8 && file >= 0 && file < 8;
+    }
+}
@@ -0,0 +1,525 @@
+package model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+// Win/draw bitbases for a king and one or two pieces against a lone king,
+// built by retrograde analysis. The lone king can never win, so one bit
+// per position is enough: set when the stronger side wins. Positions are
+// stored with the stronger side as White and indexed as
+//
+//   side to move (1 bit) | white king | black king | piece 1 | piece 2
+//
+// with 6 bits per square, so a probe is an index computation and one load.
+// Illegal placements are stored as draws.
+public final class Bitbase {
+
+    public enum Material {
+        KPK(Type.PAWN),
+        KRK(Type.ROOK),
+        KQK(Type.QUEEN),
+        KBNK(Type.BISHOP, Type.KNIGHT);
+
+        final Type[] pieces;
+
+        Material(Type... pieces) {
+            this.pieces = pieces;
+        }
+
+        int positions() {
+            return 1 << (13 + 6 * pieces.length);
+        }
+    }
+
+    public static final int UNKNOWN = -2;
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+
+    // Layout, all big-endian longs: FORMAT, material ordinal, the bit
+    // words, then a CRC32 of everything before it
+    private static final long FORMAT = 0x4249544241534531L; // "BITBASE1"
+
+    private static final int WTM = 0;
+    private static final int BTM = 1;
+    private static final int NONE = -1;
+
+    private static final Map<Material, Bitbase> loaded = new EnumMap<>(Material.class);
+
+    private final Material material;
+    private final long[] wins;
+
+
+    private Bitbase(Material material, long[] wins) {
+        this.material = material;
+        this.wins = wins;
+    }
+
+
+    public Material material() {
+        return material;
+    }
+
+
+    // Share of positions (legal or not) won by the stronger side
+    public double winShare() {
+        long won = 0;
+        for (long word : wins) won += Long.bitCount(word);
+        return (double) won / material.positions();
+    }
+
+
+    // --- Probing ---
+
+    // WIN/DRAW/LOSS for the side to move, or UNKNOWN when the board does not
+    // hold this material. Castling rights are ignored.
+    public int probe(Board board) {
+        Type[] pieces = material.pieces;
+        if (Long.bitCount(board.getOccupancy()) != 2 + pieces.length) return UNKNOWN;
+
+        Color strong;
+        if (board.getBitboard(pieces[0], Color.WHITE) != 0) strong = Color.WHITE;
+        else if (board.getBitboard(pieces[0], Color.BLACK) != 0) strong = Color.BLACK;
+        else return UNKNOWN;
+
+        // Mirroring the ranks turns a Black stronger side into White
+        int flip = strong == Color.WHITE ? 0 : 56;
+        Color weak = strong.opposite();
+
+        long p1 = board.getBitboard(pieces[0], strong);
+        if (Long.bitCount(p1) != 1) return UNKNOWN;
+        int p2 = NONE;
+        if (pieces.length == 2) {
+            long second = board.getBitboard(pieces[1], strong);
+            if (Long.bitCount(second) != 1) return UNKNOWN;
+            p2 = Long.numberOfTrailingZeros(second) ^ flip;
+        }
+        // With the piece count checked above, this leaves no room for others
+        if (Long.bitCount(board.getBitboard(Type.KING, weak)) != 1) return UNKNOWN;
+
+        int side = board.sideToMove == strong ? WTM : BTM;
+        int index = index(side,
+            Long.numberOfTrailingZeros(board.getBitboard(Type.KING, strong)) ^ flip,
+            Long.numberOfTrailingZeros(board.getBitboard(Type.KING, weak)) ^ flip,
+            Long.numberOfTrailingZeros(p1) ^ flip, p2);
+
+        if (!get(wins, index)) return DRAW;
+        return side == WTM ? WIN : LOSS;
+    }
+
+
+    // Probes whichever loaded bitbase matches the board
+    public static int probeLoaded(Board board) {
+        if (loaded.isEmpty() || Long.bitCount(board.getOccupancy()) > 4) return UNKNOWN;
+        for (Bitbase bitbase : loaded.values()) {
+            int result = bitbase.probe(board);
+            if (result != UNKNOWN) return result;
+        }
+        return UNKNOWN;
+    }
+
+
+    // The directory named by -Dchess.bitbases, or ./bitbases
+    public static int loadDefault() {
+        return loadDirectory(Path.of(System.getProperty("chess.bitbases", "bitbases")));
+    }
+
+
+    // Loads every <material>.bin found in dir; returns how many were loaded
+    public static synchronized int loadDirectory(Path dir) {
+        int count = 0;
+        for (Material material : Material.values()) {
+            Path file = dir.resolve(material.name() + ".bin");
+            if (!Files.isRegularFile(file)) continue;
+            try {
+                loaded.put(material, read(file));
+                count++;
+            } catch (IOException e) {
+                System.err.println("Cannot read bitbase " + file + ": " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+
+    private static int index(int side, int wk, int bk, int p1, int p2) {
+        int index = ((side << 6 | wk) << 6 | bk) << 6 | p1;
+        return p2 == NONE ? index : index << 6 | p2;
+    }
+
+
+    private static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+
+    // --- Storage ---
+
+    public void write(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES * (2 + wins.length));
+        bytes.asLongBuffer().put(FORMAT).put(material.ordinal()).put(wins);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array());
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.write(bytes.array());
+            out.writeLong(crc.getValue());
+        }
+    }
+
+
+    public static Bitbase read(Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        int payload = bytes.limit() - Long.BYTES;
+        if (payload < 2 * Long.BYTES || payload % Long.BYTES != 0) {
+            throw new IOException("Not a bitbase file");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.duplicate().limit(payload));
+        LongBuffer longs = bytes.asLongBuffer();
+        if (longs.get(payload / Long.BYTES) != crc.getValue()) throw new IOException("Checksum mismatch");
+
+        long ordinal;
+        if (longs.get() != FORMAT || (ordinal = longs.get()) < 0 || ordinal >= Material.values().length) {
+            throw new IOException("Not a bitbase file");
+        }
+        Material material = Material.values()[(int) ordinal];
+        long[] wins = new long[material.positions() / 64];
+        if (longs.remaining() != wins.length + 1) throw new IOException("Wrong size for " + material);
+        longs.get(wins);
+        return new Bitbase(material, wins);
+    }
+
+
+    // --- Generation ---
+
+    // Builds the bitbase on the given number of threads. KPK needs the KQK
+    // and KRK bitbases for its promotions.
+    public static Bitbase generate(Material material, int threads, Bitbase queen, Bitbase rook) {
+        if (material == Material.KPK && (queen == null || rook == null)) {
+            throw new IllegalArgumentException("KPK needs the KQK and KRK bitbases");
+        }
+        return new Generator(material, Math.max(1, threads), queen, rook).run();
+    }
+
+
+    // Retrograde analysis over two bit sets, one per side to move. Starting
+    // from the checkmates (and for KPK the winning promotions), every round
+    // un-moves White from the Black-to-move positions won in the previous
+    // round, which wins those White-to-move predecessors outright, then
+    // un-moves the black king from the newly won White-to-move positions and
+    // keeps the predecessors where every black move now loses. Each round
+    // is split over the threads by ranges of the index space.
+    private static final class Generator {
+
+        private static final long[] KING = Attacks.KING;
+        private static final long[] KNIGHT = Attacks.KNIGHT;
+        private static final long[] PAWN = Attacks.PAWN[Color.WHITE.ordinal()];
+
+        private final Material material;
+        private final Type[] pieces;
+        private final int threads;
+        private final Bitbase queen;
+        private final Bitbase rook;
+        private final int sideSize;
+
+        // Indexed without the side-to-move bit
+        private final AtomicLongArray wonW;
+        private final AtomicLongArray wonB;
+        private AtomicLongArray frontierW;
+        private AtomicLongArray frontierB;
+
+        Generator(Material material, int threads, Bitbase queen, Bitbase rook) {
+            this.material = material;
+            this.pieces = material.pieces;
+            this.threads = threads;
+            this.queen = queen;
+            this.rook = rook;
+            this.sideSize = material.positions() / 2;
+            int words = sideSize / 64;
+            this.wonW = new AtomicLongArray(words);
+            this.wonB = new AtomicLongArray(words);
+            this.frontierW = new AtomicLongArray(words);
+            this.frontierB = new AtomicLongArray(words);
+        }
+
+        Bitbase run() {
+            parallel(this::seed, null);
+
+            while (!isEmpty(frontierW) || !isEmpty(frontierB)) {
+                AtomicLongArray nextW = new AtomicLongArray(sideSize / 64);
+                AtomicLongArray nextB = new AtomicLongArray(sideSize / 64);
+
+                parallel(index -> unmoveWhite(index, nextW), frontierB);
+                parallel(index -> unmoveBlack(index, nextB), frontierW);
+
+                // White-to-move positions won this round are un-moved next round
+                frontierW = nextW;
+                frontierB = nextB;
+            }
+
+            long[] wins = new long[material.positions() / 64];
+            int words = sideSize / 64;
+            for (int i = 0; i < words; i++) {
+                wins[i] = wonW.get(i);
+                wins[words + i] = wonB.get(i);
+            }
+            return new Bitbase(material, wins);
+        }
+
+        // --- Rounds ---
+
+        // Runs task over every set bit of bits, or over every index when bits
+        // is null, with the index space split into one range per thread
+        private void parallel(IntConsumer task, AtomicLongArray bits) {
+            int words = sideSize / 64;
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int from = (int) ((long) words * t / threads);
+                int to = (int) ((long) words * (t + 1) / threads);
+                workers[t] = new Thread(() -> {
+                    for (int w = from; w < to; w++) {
+                        long word = bits == null ? -1L : bits.get(w);
+                        for (; word != 0; word &= word - 1) {
+                            task.accept(w << 6 | Long.numberOfTrailingZeros(word));
+                        }
+                    }
+                }, "bitbase-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Bitbase generation interrupted", e);
+                }
+            }
+        }
+
+        // Checkmates, and for KPK the positions where a promotion wins
+        private void seed(int index) {
+            int wk = wk(index), bk = bk(index), p1 = p1(index), p2 = p2(index);
+            if (!placed(wk, bk, p1, p2)) return;
+
+            if (blackLoses(wk, bk, p1, p2) && set(wonB, index)) set(frontierB, index);
+
+            if (material == Material.KPK && legalWhiteToMove(wk, bk, p1, p2)
+                    && p1 >= 48 && promotionWins(wk, bk, p1)) {
+                if (set(wonW, index)) set(frontierW, index);
+            }
+        }
+
+        // Black-to-move position won last round: every White-to-move
+        // position one white move earlier is won
+        private void unmoveWhite(int index, AtomicLongArray next) {
+            int wk = wk(index), bk = bk(index), p1 = p1(index), p2 = p2(index);
+            long occ = bit(wk) | bit(bk) | bit(p1) | bit(p2);
+
+            for (long from = KING[wk] & ~occ & ~KING[bk]; from != 0; from &= from - 1) {
+                markWhite(Long.numberOfTrailingZeros(from), bk, p1, p2, next);
+            }
+            for (long from = unmoves(pieces[0], p1, occ); from != 0; from &= from - 1) {
+                markWhite(wk, bk, Long.numberOfTrailingZeros(from), p2, next);
+            }
+            if (p2 != NONE) {
+                for (long from = unmoves(pieces[1], p2, occ); from != 0; from &= from - 1) {
+                    markWhite(wk, bk, p1, Long.numberOfTrailingZeros(from), next);
+                }
+            }
+        }
+
+        private void markWhite(int wk, int bk, int p1, int p2, AtomicLongArray next) {
+            if (!legalWhiteToMove(wk, bk, p1, p2)) return;
+            int index = index(wk, bk, p1, p2);
+            if (set(wonW, index)) set(next, index);
+        }
+
+        // White-to-move position won last round: a Black-to-move position one
+        // king move earlier is won if all of Black's moves now lose
+        private void unmoveBlack(int index, AtomicLongArray next) {
+            int wk = wk(index), bk = bk(index), p1 = p1(index), p2 = p2(index);
+            long occ = bit(wk) | bit(bk) | bit(p1) | bit(p2);
+
+            for (long from = KING[bk] & ~occ & ~KING[wk]; from != 0; from &= from - 1) {
+                int before = Long.numberOfTrailingZeros(from);
+                int pred = index(wk, before, p1, p2);
+                if (get(wonB, pred) || !blackLoses(wk, before, p1, p2)) continue;
+                if (set(wonB, pred)) set(next, pred);
+            }
+        }
+
+        // --- Rules ---
+
+        // Black to move is mated, or every legal king move reaches a won
+        // White-to-move position. Taking a piece leaves a drawn ending.
+        private boolean blackLoses(int wk, int bk, int p1, int p2) {
+            long white = bit(wk) | bit(p1) | bit(p2);
+            boolean inCheck = attacked(bk, wk, p1, p2, white | bit(bk), NONE);
+            boolean hasMove = false;
+
+            for (long to = KING[bk] & ~KING[wk] & ~bit(wk); to != 0; to &= to - 1) {
+                int sq = Long.numberOfTrailingZeros(to);
+                if (sq == p1 || sq == p2) {
+                    if (!attacked(sq, wk, p1, p2, white, sq)) return false;
+                    continue;
+                }
+                if (attacked(sq, wk, p1, p2, white | bit(sq), NONE)) continue;
+                hasMove = true;
+                if (!get(wonW, index(wk, sq, p1, p2))) return false;
+            }
+            return hasMove || inCheck;
+        }
+
+        // White to move wins by promoting: to a queen or rook whose
+        // Black-to-move position is won (a minor piece only draws)
+        private boolean promotionWins(int wk, int bk, int pawn) {
+            int sq = pawn + 8;
+            if (sq == wk || sq == bk) return false;
+            return queen.wins(BTM, wk, bk, sq) || rook.wins(BTM, wk, bk, sq);
+        }
+
+        private boolean attacked(int sq, int wk, int p1, int p2, long occ, int captured) {
+            long target = bit(sq);
+            if ((KING[wk] & target) != 0) return true;
+            if (p1 != captured && (attacks(pieces[0], p1, occ) & target) != 0) return true;
+            return p2 != NONE && p2 != captured && (attacks(pieces[1], p2, occ) & target) != 0;
+        }
+
+        private static long attacks(Type type, int sq, long occ) {
+            return switch (type) {
+                case PAWN -> PAWN[sq];
+                case KNIGHT -> KNIGHT[sq];
+                case BISHOP -> Board.magicBitboards.getBishopAttacks(sq, occ);
+                case ROOK -> Board.magicBitboards.getRookAttacks(sq, occ);
+                case QUEEN -> Board.magicBitboards.getBishopAttacks(sq, occ)
+                            | Board.magicBitboards.getRookAttacks(sq, occ);
+                case KING -> KING[sq];
+            };
+        }
+
+        // Squares the piece on sq can have come from, none of them captures
+        private static long unmoves(Type type, int sq, long occ) {
+            if (type != Type.PAWN) return attacks(type, sq, occ) & ~occ;
+
+            long from = 0;
+            if (sq >= 16 && (occ & bit(sq - 8)) == 0) {
+                from |= bit(sq - 8);
+                if (sq >= 24 && sq < 32 && (occ & bit(sq - 16)) == 0) from |= bit(sq - 16);
+            }
+            return from;
+        }
+
+        // Distinct squares, kings apart and no pawn on the first or last rank
+        private boolean placed(int wk, int bk, int p1, int p2) {
+            if (wk == bk || wk == p1 || bk == p1) return false;
+            if (p2 != NONE && (p2 == wk || p2 == bk || p2 == p1)) return false;
+            if ((KING[wk] & bit(bk)) != 0) return false;
+            return pieces[0] != Type.PAWN || (p1 >= 8 && p1 < 56);
+        }
+
+        private boolean legalWhiteToMove(int wk, int bk, int p1, int p2) {
+            if (!placed(wk, bk, p1, p2)) return false;
+            long occ = bit(wk) | bit(bk) | bit(p1) | bit(p2);
+            return !attacked(bk, wk, p1, p2, occ, NONE);
+        }
+
+        // --- Index ---
+
+        private int index(int wk, int bk, int p1, int p2) {
+            int index = (wk << 6 | bk) << 6 | p1;
+            return p2 == NONE ? index : index << 6 | p2;
+        }
+
+        private int wk(int index) {
+            return index >>> (6 * pieces.length + 6) & 63;
+        }
+
+        private int bk(int index) {
+            return index >>> (6 * pieces.length) & 63;
+        }
+
+        private int p1(int index) {
+            return index >>> (6 * (pieces.length - 1)) & 63;
+        }
+
+        private int p2(int index) {
+            return pieces.length == 2 ? index & 63 : NONE;
+        }
+
+        private static long bit(int sq) {
+            return sq == NONE ? 0L : 1L << sq;
+        }
+
+        private static boolean get(AtomicLongArray bits, int index) {
+            return (bits.get(index >>> 6) & 1L << index) != 0;
+        }
+
+        // Sets the bit; true if this call set it
+        private static boolean set(AtomicLongArray bits, int index) {
+            long mask = 1L << index;
+            int w = index >>> 6;
+            long old = bits.get(w);
+            while ((old & mask) == 0) {
+                if (bits.compareAndSet(w, old, old | mask)) return true;
+                old = bits.get(w);
+            }
+            return false;
+        }
+
+        private static boolean isEmpty(AtomicLongArray bits) {
+            for (int i = 0; i < bits.length(); i++) {
+                if (bits.get(i) != 0) return false;
+            }
+            return true;
+        }
+    }
+
+
+    // Lookup used by KPK for the position after a promotion
+    private boolean wins(int side, int wk, int bk, int piece) {
+        return get(wins, index(side, wk, bk, piece, NONE));
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Path.of("bitbases");
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            // Every option takes a value
+            if (i + 1 == args.length) {
+                System.out.println("Usage: bitbase [--out <dir>] [--threads <n>]");
+                return;
+            }
+            switch (args[i]) {
+                case "--out" -> dir = Path.of(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Map<Material, Bitbase> built = new EnumMap<>(Material.class);
+        for (Material material : new Material[] { Material.KQK, Material.KRK, Material.KPK, Material.KBNK }) {
+            long start = System.nanoTime();
+            Bitbase bitbase = generate(material, threads, built.get(Material.KQK), built.get(Material.KRK));
+            built.put(material, bitbase);
+            Path file = dir.resolve(material.name() + ".bin");
+            bitbase.write(file);
+            System.out.printf("%s: %d positions, %.1f%% won, %d ms, %s%n", material, material.positions(),
+                bitbase.winShare() * 100, (System.nanoTime() - start) / 1_000_000, file);
+        }
+    }
+}
@@ -2,8 +2,8 @@ package model;
 
 import io.Parser;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 
 
 
@@ -11,6 +11,10 @@ import java.util.Stack;
 public class Board {
     
     private final long[] bb = new long[12];
+
+    
+    // Piece index on each square, EMPTY if none; mirrors the bitboards
+    private final byte[] mailbox = new byte[64];
     
     
     private static final int WP = 0;
@@ -38,6 +42,9 @@ public class Board {
     private static final int BK = 11;
 
     
+    private static final byte EMPTY = -1;
+
+    
     public Color sideToMove = Color.WHITE;
     
     
@@ -53,20 +60,180 @@ public class Board {
     public int lastMoveTo = -1;
 
     
-    private Stack<BoardState> history = new Stack<>();
+    private long zobristKey;
+
+    
+    // Zobrist component of the pawns alone, for the pawn structure cache
+    private long pawnKey;
+
+    
+    private long whiteOccupancy;
+
+    
+    private long blackOccupancy;
+
+    
+    private long occupancy;
+
+    
+    private int kingSquare;
+
+    
+    private long checkers;
+
+    
+    private long pinned;
+
+    
+    private long checkMask;
+
+    
+    private final int[] captured = new int[12];
+
+    
+    // Evaluation terms kept in step with the pieces by putPiece/removePiece:
+    // PieceSquareTables sums (White positive) and the game phase
+    private int mgScore;
+
+    
+    private int egScore;
+
+    
+    private int phase;
+
+    
+    // Undo records, one per ply: the move played, the packed irreversible
+    // state (castling, en passant, last move squares) and the Zobrist key
+    private int[] moveHistory = new int[INITIAL_HISTORY];
+    
+    
+    private int[] stateHistory = new int[INITIAL_HISTORY];
+    
     
+    private long[] keyHistory = new long[INITIAL_HISTORY];
     
-    public List<Piece> capturedByWhite = new ArrayList<>();
     
+    private int ply = 0;
+
+    
+    // Shared with Bitbase, which generates moves without a Board
+    static final MagicBitboards magicBitboards = new MagicBitboards();
+
+    
+    private static final int INITIAL_HISTORY = 256;
+
+    
+    private static final Type[] TYPES = Type.values();
+
+    
+    private static final long FILE_A = 0x0101010101010101L;
+
+    
+    private static final long FILE_H = 0x8080808080808080L;
+
     
-    public List<Piece> capturedByBlack = new ArrayList<>();
+    private static final long RANK_3 = 0x0000000000FF0000L;
 
     
-    private static final MagicBitboards magicBitboards = new MagicBitboards();
+    private static final long RANK_6 = 0x0000FF0000000000L;
+
+    
+    private static final long PROMOTION_RANKS = 0xFF000000000000FFL;
+
+
+    
+    private static final Type[] PROMOTION_TYPES = { Type.QUEEN, Type.ROOK, Type.BISHOP, Type.KNIGHT };
+
+    
+    // Exchange values by Type ordinal; the king is worth more than any exchange
+    private static final int[] SEE_VALUES = { 100, 320, 330, 500, 900, 20000 };
+
+    
+    // Swap list for see(), one entry per capture in the sequence
+    private final int[] seeGain = new int[32];
 
     
     public Board() {
         setupInitialPosition();
+        updateOccupancy();
+        updateMailbox();
+        updateEvaluation();
+        zobristKey = computeKey();
+        pawnKey = computePawnKey();
+    }
+
+    
+    public Board(String fen) {
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        int rank = 7;
+        int file = 0;
+        for (char c : parts[0].toCharArray()) {
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int pieceIdx = "PNBRQKpnbrqk".indexOf(c);
+                if (pieceIdx == -1 || rank < 0 || file > 7) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                bb[pieceIdx] |= 1L << (rank * 8 + file);
+                file++;
+            }
+        }
+
+        sideToMove = parts[1].equals("b") ? Color.BLACK : Color.WHITE;
+
+        castlingRights = 0;
+        if (parts[2].indexOf('K') != -1) castlingRights |= 0b1000;
+        if (parts[2].indexOf('Q') != -1) castlingRights |= 0b0100;
+        if (parts[2].indexOf('k') != -1) castlingRights |= 0b0010;
+        if (parts[2].indexOf('q') != -1) castlingRights |= 0b0001;
+
+        enPassantSquare = parts[3].equals("-") ? -1 : sqIdx(parts[3]);
+        updateOccupancy();
+
+        // Move generation and check detection assume both kings are there
+        if (Long.bitCount(bb[WK]) != 1 || Long.bitCount(bb[BK]) != 1) {
+            throw new IllegalArgumentException("Invalid FEN (each side needs exactly one king): " + fen);
+        }
+        if (isInCheck(sideToMove.opposite())) {
+            throw new IllegalArgumentException("Invalid FEN (the side not to move is in check): " + fen);
+        }
+
+        updateMailbox();
+        updateEvaluation();
+        zobristKey = computeKey();
+        pawnKey = computePawnKey();
+    }
+
+    
+    public Board(Board other) {
+        System.arraycopy(other.bb, 0, bb, 0, 12);
+        sideToMove = other.sideToMove;
+        enPassantSquare = other.enPassantSquare;
+        castlingRights = other.castlingRights;
+        lastMoveFrom = other.lastMoveFrom;
+        lastMoveTo = other.lastMoveTo;
+        zobristKey = other.zobristKey;
+        pawnKey = other.pawnKey;
+        whiteOccupancy = other.whiteOccupancy;
+        blackOccupancy = other.blackOccupancy;
+        occupancy = other.occupancy;
+        System.arraycopy(other.mailbox, 0, mailbox, 0, 64);
+        System.arraycopy(other.captured, 0, captured, 0, 12);
+        mgScore = other.mgScore;
+        egScore = other.egScore;
+        phase = other.phase;
+        moveHistory = other.moveHistory.clone();
+        stateHistory = other.stateHistory.clone();
+        keyHistory = other.keyHistory.clone();
+        ply = other.ply;
     }
 
     
@@ -86,39 +253,37 @@ public class Board {
     }
 
     
-    private void saveState() {
-        BoardState state = new BoardState();
-        state.bb = bb.clone();
-        state.sideToMove = sideToMove;
-        state.enPassantSquare = enPassantSquare;
-        state.castlingRights = castlingRights;
-        state.lastMoveFrom = lastMoveFrom;
-        state.lastMoveTo = lastMoveTo;
-        state.capturedByWhite = new ArrayList<>(capturedByWhite);
-        state.capturedByBlack = new ArrayList<>(capturedByBlack);
-        history.push(state);
+    private void pushState(int move) {
+        if (ply == moveHistory.length) {
+            moveHistory = Arrays.copyOf(moveHistory, ply * 2);
+            stateHistory = Arrays.copyOf(stateHistory, ply * 2);
+            keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+        }
+        moveHistory[ply] = move;
+        stateHistory[ply] = castlingRights
+            | (enPassantSquare & 0x7F) << 4
+            | (lastMoveFrom & 0x7F) << 11
+            | (lastMoveTo & 0x7F) << 18;
+        keyHistory[ply] = zobristKey;
+        ply++;
     }
 
     
     public boolean undo() {
-        if (history.isEmpty()) return false;
-
-        BoardState state = history.pop();
-        System.arraycopy(state.bb, 0, bb, 0, 12);
-        sideToMove = state.sideToMove;
-        enPassantSquare = state.enPassantSquare;
-        castlingRights = state.castlingRights;
-        lastMoveFrom = state.lastMoveFrom;
-        lastMoveTo = state.lastMoveTo;
-        capturedByWhite = state.capturedByWhite;
-        capturedByBlack = state.capturedByBlack;
+        if (ply == 0) return false;
 
+        unmakeMove(moveHistory[ply - 1]);
         return true;
     }
 
     
     public boolean canUndo() { 
-        return !history.isEmpty(); 
+        return ply > 0; 
+    }
+
+    
+    public int getCapturedCount(Type type, Color color) {
+        return captured[getPieceIndex(type, color)];
     }
 
     
@@ -127,38 +292,117 @@ public class Board {
     }
 
     
+    private void updateOccupancy() {
+        whiteOccupancy = 0L;
+        blackOccupancy = 0L;
+        for (int i = 0; i < 6; i++) whiteOccupancy |= bb[i];
+        for (int i = 6; i < 12; i++) blackOccupancy |= bb[i];
+        occupancy = whiteOccupancy | blackOccupancy;
+    }
+
+    
+    private void updateMailbox() {
+        Arrays.fill(mailbox, EMPTY);
+        for (int i = 0; i < 12; i++) {
+            for (long pieces = bb[i]; pieces != 0; pieces &= pieces - 1) {
+                mailbox[Long.numberOfTrailingZeros(pieces)] = (byte) i;
+            }
+        }
+    }
+
+    
+    private void updateEvaluation() {
+        mgScore = 0;
+        egScore = 0;
+        phase = 0;
+        for (int idx = 0; idx < 12; idx++) {
+            for (long pieces = bb[idx]; pieces != 0; pieces &= pieces - 1) {
+                addEvaluation(idx, Long.numberOfTrailingZeros(pieces), 1);
+            }
+        }
+    }
+
+    
+    private void addEvaluation(int pieceIdx, int square, int sign) {
+        mgScore += sign * PieceSquareTables.MG[pieceIdx][square];
+        egScore += sign * PieceSquareTables.EG[pieceIdx][square];
+        phase += sign * PieceSquareTables.PHASE_WEIGHTS[pieceIdx % 6];
+    }
+
+    
+    public int getMidgameScore() {
+        return mgScore;
+    }
+
+    
+    public int getEndgameScore() {
+        return egScore;
+    }
+
+    
+    public int getPhase() {
+        return phase;
+    }
+
+    
     private long whiteOcc() {
-        long o = 0L;
-        for (int i = 0; i < 6; i++) o |= bb[i];
-        return o;
+        return whiteOccupancy;
     }
 
     
     private long blackOcc() {
-        long o = 0L;
-        for (int i = 6; i < 12; i++) o |= bb[i];
-        return o;
+        return blackOccupancy;
     }
 
     
     private long allOcc() { 
-        return whiteOcc() | blackOcc(); 
+        return occupancy; 
+    }
+
+    
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    
+    public long computeKey() {
+        long key = sideToMove == Color.WHITE ? 0L : Zobrist.SIDE;
+        for (int i = 0; i < 12; i++) {
+            long pieces = bb[i];
+            while (pieces != 0) {
+                key ^= Zobrist.PIECE_SQUARE[i][Long.numberOfTrailingZeros(pieces)];
+                pieces &= pieces - 1;
+            }
+        }
+        return key ^ Zobrist.CASTLING[castlingRights] ^ Zobrist.enPassant(enPassantSquare);
+    }
+
+    
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    
+    public long computePawnKey() {
+        long key = 0L;
+        for (int idx : new int[] { WP, BP }) {
+            for (long pawns = bb[idx]; pawns != 0; pawns &= pawns - 1) {
+                key ^= Zobrist.PIECE_SQUARE[idx][Long.numberOfTrailingZeros(pawns)];
+            }
+        }
+        return key;
     }
 
     
     private int pieceIndexAt(int square) {
-        long mask = 1L << square;
-        for (int i = 0; i < 12; i++) 
-            if ((bb[i] & mask) != 0)
-                return i;
-        return -1;
+        return mailbox[square];
     }
 
     
     public Piece getPieceAt(int idx) {
         int p = pieceIndexAt(idx);
         if (p == -1) return null;
-        return new Piece(Type.values()[p % 6], p < 6 ? Color.WHITE : Color.BLACK);
+        return Piece.fromIndex(p);
     }
 
     
@@ -173,43 +417,99 @@ public class Board {
             case ROOK -> magicBitboards.getRookAttacks(square, occ);
             case QUEEN -> magicBitboards.getBishopAttacks(square, occ) 
                         | magicBitboards.getRookAttacks(square, occ);
-            case KNIGHT -> generateKnightMoves(square);
-            case KING -> generateKingMoves(square);
+            case KNIGHT -> Attacks.KNIGHT[square];
+            case KING -> Attacks.KING[square];
             case PAWN -> 0L; // Pawns handled separately
         };
     }
 
     
     private boolean isSquareAttacked(int square, Color byColor) {
-        long occ = allOcc();
-        long attackers = byColor == Color.WHITE ? whiteOcc() : blackOcc();
+        return attackersTo(square, byColor, allOcc()) != 0;
+    }
 
-        // Check pawns
-        int pawnIdx = byColor == Color.WHITE ? WP : BP;
-        long pawnAttacks = byColor == Color.WHITE 
-            ? generatePawnAttacks(square, Color.BLACK)
-            : generatePawnAttacks(square, Color.WHITE);
-        if ((bb[pawnIdx] & pawnAttacks) != 0) return true;
+    
+    private long attackersTo(int square, Color byColor, long occ) {
+        boolean white = byColor == Color.WHITE;
+        long attackers = 0L;
+
+        // Pawns attack the square from where an opposite pawn would capture
+        attackers |= bb[white ? WP : BP] & Attacks.PAWN[byColor.opposite().ordinal()][square];
+        attackers |= bb[white ? WN : BN] & Attacks.KNIGHT[square];
+        attackers |= bb[white ? WK : BK] & Attacks.KING[square];
 
-        // Check knights
-        int knightIdx = byColor == Color.WHITE ? WN : BN;
-        if ((bb[knightIdx] & generateKnightMoves(square)) != 0) return true;
+        long queens = bb[white ? WQ : BQ];
+        attackers |= (bb[white ? WB : BB] | queens) & magicBitboards.getBishopAttacks(square, occ);
+        attackers |= (bb[white ? WR : BR] | queens) & magicBitboards.getRookAttacks(square, occ);
 
-        // Check bishops/queens (diagonal)
-        long bishopQueens = bb[byColor == Color.WHITE ? WB : BB] 
-                          | bb[byColor == Color.WHITE ? WQ : BQ];
-        if ((bishopQueens & magicBitboards.getBishopAttacks(square, occ)) != 0) return true;
+        return attackers;
+    }
 
-        // Check rooks/queens (straight)
-        long rookQueens = bb[byColor == Color.WHITE ? WR : BR] 
-                        | bb[byColor == Color.WHITE ? WQ : BQ];
-        if ((rookQueens & magicBitboards.getRookAttacks(square, occ)) != 0) return true;
+    
+    // Static exchange evaluation: material gained by the side to move when
+    // both sides keep recapturing on the target square with their least
+    // valuable attacker. Attackers are recomputed from the magic tables as
+    // pieces leave the square's rays, so x-ray attackers behind them join in.
+    public int see(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int pieceIdx = PackedMove.piece(move);
+        int capIdx = PackedMove.captured(move);
 
-        // Check king
-        int kingIdx = byColor == Color.WHITE ? WK : BK;
-        if ((bb[kingIdx] & generateKingMoves(square)) != 0) return true;
+        long occ = allOcc() & ~(1L << from);
+        if ((PackedMove.flags(move) & Move.FLAG_EN_PASSANT) != 0) {
+            occ &= ~(1L << (sideToMove == Color.WHITE ? to - 8 : to + 8));
+        }
 
-        return false;
+        int[] gain = seeGain;
+        int depth = 0;
+        gain[0] = capIdx == PackedMove.NO_PIECE ? 0 : SEE_VALUES[capIdx % 6];
+        int onSquare = SEE_VALUES[pieceIdx % 6];
+        if (PackedMove.isPromotion(move)) {
+            int promotion = SEE_VALUES[PackedMove.promotion(move)];
+            gain[0] += promotion - SEE_VALUES[WP];
+            onSquare = promotion;
+        }
+
+        long diagonal = bb[WB] | bb[BB] | bb[WQ] | bb[BQ];
+        long straight = bb[WR] | bb[BR] | bb[WQ] | bb[BQ];
+        long attackers = (attackersTo(to, Color.WHITE, occ) | attackersTo(to, Color.BLACK, occ)) & occ;
+        Color side = sideToMove.opposite();
+
+        while (true) {
+            // Speculative score if the piece now on the square is taken
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            // Neither side can do better by continuing from here
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) break;
+
+            long ours = attackers & (side == Color.WHITE ? whiteOcc() : blackOcc());
+            if (ours == 0) break;
+
+            int attackerIdx = -1;
+            long attacker = 0L;
+            for (int idx = side == Color.WHITE ? WP : BP, end = idx + 6; idx < end; idx++) {
+                long candidates = ours & bb[idx];
+                if (candidates != 0) {
+                    attackerIdx = idx;
+                    attacker = candidates & -candidates;
+                    break;
+                }
+            }
+
+            onSquare = SEE_VALUES[attackerIdx % 6];
+            occ &= ~attacker;
+            attackers |= (magicBitboards.getBishopAttacks(to, occ) & diagonal)
+                       | (magicBitboards.getRookAttacks(to, occ) & straight);
+            attackers &= occ;
+            side = side.opposite();
+        }
+
+        // The last entry is speculative; each side may stop recapturing
+        while (--depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
     }
 
     
@@ -225,16 +525,25 @@ public class Board {
     }
 
     
-    private long generatePawnAttacks(int square, Color color) {
-        long attacks = 0L;
-        int[] offsets = color == Color.WHITE ? new int[]{7, 9} : new int[]{-7, -9};
-        for (int off : offsets) {
-            int to = square + off;
-            if (to >= 0 && to < 64 && Math.abs((to % 8) - (square % 8)) == 1) {
-                attacks |= 1L << to;
-            }
+    public long getOccupancy() {
+        return occupancy;
+    }
+
+    
+    public long getBitboard(Type type, Color color) {
+        return bb[getPieceIndex(type, color)];
+    }
+
+    
+    // True if the current position already occurred with the same side to
+    // move since the last capture or pawn move
+    public boolean isRepetition() {
+        for (int i = ply - 1; i >= 0; i--) {
+            int move = moveHistory[i];
+            if (PackedMove.isCapture(move) || PackedMove.piece(move) % 6 == WP) return false;
+            if (((ply - i) & 1) == 0 && keyHistory[i] == zobristKey) return true;
         }
-        return attacks;
+        return false;
     }
 
     
@@ -258,148 +567,291 @@ public class Board {
         }
 
         // Captures
-        for (int off : color == Color.WHITE ? new int[]{7, 9} : new int[]{-7, -9}) {
-            int to = from + off;
-            if (to >= 0 && to < 64 && Math.abs((to % 8) - (from % 8)) == 1) {
-                if (((enemy & (1L << to)) != 0) || to == enPassantSquare) {
-                    moves |= 1L << to;
-                }
-            }
-        }
+        long capturable = enPassantSquare == -1 ? enemy : enemy | 1L << enPassantSquare;
+        moves |= Attacks.PAWN[color.ordinal()][from] & capturable;
 
         return moves;
     }
 
     
-    private long generateKnightMoves(int from) {
-        long m = 0;
-        int[] offsets = {-17, -15, -10, -6, 6, 10, 15, 17};
-        for (int d : offsets) {
-            int t = from + d;
-            if (t >= 0 && t < 64 && Math.abs((from % 8) - (t % 8)) <= 2)
-                m |= 1L << t;
-        }
-        return m;
-    }
-
-    
-    private long generateKingMoves(int from) {
-        long m = 0;
-        int[] offsets = {-9, -8, -7, -1, 1, 7, 8, 9};
-        for (int d : offsets) {
-            int t = from + d;
-            if (t >= 0 && t < 64 && Math.abs((from % 8) - (t % 8)) <= 1)
-                m |= 1L << t;
-        }
-        return m;
-    }
-
-    
     private long generateMoves(int from, Type type) {
         long occ = allOcc();
         long friendly = sideToMove == Color.WHITE ? whiteOcc() : blackOcc();
 
         return switch (type) {
             case PAWN -> generatePawnMoves(from, sideToMove);
-            case KNIGHT -> generateKnightMoves(from) & ~friendly;
+            case KNIGHT -> Attacks.KNIGHT[from] & ~friendly;
             case BISHOP -> magicBitboards.getBishopAttacks(from, occ) & ~friendly;
             case ROOK -> magicBitboards.getRookAttacks(from, occ) & ~friendly;
             case QUEEN -> (magicBitboards.getBishopAttacks(from, occ)
                          | magicBitboards.getRookAttacks(from, occ)) & ~friendly;
-            case KING -> generateKingMoves(from) & ~friendly;
+            case KING -> Attacks.KING[from] & ~friendly;
         };
     }
 
     
-    private boolean isLegalMove(int from, int to, Type pieceType) {
-        long[] bbCopy = bb.clone();
-        int epCopy = enPassantSquare;
-        
-        int pieceIdx = getPieceIndex(pieceType, sideToMove);
-        bb[pieceIdx] &= ~(1L << from);
-        bb[pieceIdx] |= 1L << to;
-        
-        // Handle capture
-        int captureIdx = pieceIndexAt(to);
-        if (captureIdx != -1 && captureIdx != pieceIdx) {
-            bb[captureIdx] &= ~(1L << to);
+    // Computed once per position before legal moves are generated: pieces
+    // giving check, own pieces pinned to the king, and the squares a
+    // non-king move must land on (everything if not in check, the checker
+    // and the squares between it and the king if in single check).
+    private void updateCheckInfo() {
+        Color them = sideToMove.opposite();
+        boolean white = sideToMove == Color.WHITE;
+        long own = white ? whiteOcc() : blackOcc();
+        long enemy = white ? blackOcc() : whiteOcc();
+
+        kingSquare = findKing(sideToMove);
+        checkers = attackersTo(kingSquare, them, own | enemy);
+
+        if (checkers == 0) {
+            checkMask = ~0L;
+        } else if ((checkers & (checkers - 1)) == 0) {
+            checkMask = checkers | Attacks.BETWEEN[kingSquare][Long.numberOfTrailingZeros(checkers)];
+        } else {
+            checkMask = 0L;
         }
-        
-        // Handle en passant capture
-        if (pieceType == Type.PAWN && to == enPassantSquare) {
-            int epCaptureSquare = sideToMove == Color.WHITE ? to - 8 : to + 8;
-            int epCaptureIdx = sideToMove == Color.WHITE ? BP : WP;
-            bb[epCaptureIdx] &= ~(1L << epCaptureSquare);
+
+        // Sliders that would attack the king if our own pieces were transparent
+        long queens = bb[white ? BQ : WQ];
+        long snipers = (magicBitboards.getRookAttacks(kingSquare, enemy) & (bb[white ? BR : WR] | queens))
+                     | (magicBitboards.getBishopAttacks(kingSquare, enemy) & (bb[white ? BB : WB] | queens));
+
+        pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = Attacks.BETWEEN[kingSquare][sniper] & (own | enemy);
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
         }
-        
-        // Check if king is in check
+    }
+
+    
+    private long legalTargets(int from, Type type) {
+        return legalTargets(from, type, ~0L);
+    }
+
+    
+    private long legalTargets(int from, Type type, long targetMask) {
+        long targets = generateMoves(from, type) & targetMask;
+
+        if (type == Type.KING) {
+            // The king must not stay on a slider's ray, so look through it
+            long occ = allOcc() & ~(1L << from);
+            Color them = sideToMove.opposite();
+            long legal = 0L;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (attackersTo(to, them, occ) == 0) legal |= 1L << to;
+            }
+            return legal;
+        }
+
+        if (checkMask == 0) return 0L;
+
+        long enPassant = 0L;
+        if (type == Type.PAWN && enPassantSquare != -1 && (targets & (1L << enPassantSquare)) != 0) {
+            targets &= ~(1L << enPassantSquare);
+            if (isLegalEnPassant(from)) enPassant = 1L << enPassantSquare;
+        }
+
+        targets &= checkMask;
+        if ((pinned & (1L << from)) != 0) {
+            targets &= Attacks.LINE[kingSquare][from];
+        }
+        return targets | enPassant;
+    }
+
+    
+    // En passant removes two pieces from one rank, which the pin and check
+    // masks cannot describe, so it is tried on the board instead
+    private boolean isLegalEnPassant(int from) {
+        int to = enPassantSquare;
+        int capSquare = sideToMove == Color.WHITE ? to - 8 : to + 8;
+        int pawnIdx = sideToMove == Color.WHITE ? WP : BP;
+        int capIdx = sideToMove == Color.WHITE ? BP : WP;
+
+        togglePiece(pawnIdx, from);
+        togglePiece(pawnIdx, to);
+        togglePiece(capIdx, capSquare);
         boolean legal = !isInCheck(sideToMove);
-        
-        // Restore state
-        System.arraycopy(bbCopy, 0, bb, 0, 12);
-        enPassantSquare = epCopy;
-        
+        togglePiece(pawnIdx, from);
+        togglePiece(pawnIdx, to);
+        togglePiece(capIdx, capSquare);
+
         return legal;
     }
 
     
     private boolean canMoveTo(int from, int target, Type type) {
-        long moves = generateMoves(from, type);
-        if ((moves & (1L << target)) == 0) return false;
-        return isLegalMove(from, target, type);
+        updateCheckInfo();
+        return (legalTargets(from, type) & (1L << target)) != 0;
     }
 
     
     public List<Move> generateAllLegalMoves() {
-        List<Move> moves = new ArrayList<>();
+        MoveList list = new MoveList();
+        generateLegalMoves(list);
+
+        List<Move> moves = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            moves.add(Move.fromPacked(list.get(i)));
+        }
+        return moves;
+    }
+
+    
+    public void generateLegalMoves(MoveList moves) {
+        generateLegalMoves(moves, false);
+    }
+
+    
+    // Legal captures (en passant included) and promotions only
+    public void generateLegalCaptures(MoveList moves) {
+        generateLegalMoves(moves, true);
+    }
+
+    
+    private void generateLegalMoves(MoveList moves, boolean capturesOnly) {
+        moves.clear();
+        updateCheckInfo();
         int startIdx = sideToMove == Color.WHITE ? 0 : 6;
+        long targetMask = capturesOnly ? (sideToMove == Color.WHITE ? blackOcc() : whiteOcc()) : ~0L;
+
+        generatePawnMovesSetwise(moves, capturesOnly);
         
-        for (int pieceIdx = startIdx; pieceIdx < startIdx + 6; pieceIdx++) {
+        for (int pieceIdx = startIdx + 1; pieceIdx < startIdx + 6; pieceIdx++) {
             long pieces = bb[pieceIdx];
-            Type type = Type.values()[pieceIdx % 6];
+            Type type = TYPES[pieceIdx % 6];
             
             while (pieces != 0) {
                 int from = Long.numberOfTrailingZeros(pieces);
                 pieces &= pieces - 1; // Clear lowest bit
                 
-                long possibleMoves = generateMoves(from, type);
-                while (possibleMoves != 0) {
-                    int to = Long.numberOfTrailingZeros(possibleMoves);
-                    possibleMoves &= possibleMoves - 1;
-                    
-                    if (isLegalMove(from, to, type)) {
-                        Move move = new Move();
-                        move.piece = new Piece(type, sideToMove);
-                        move.target = to;
-                        move.disambiguation = from;
-                        
-                        // Set flags
-                        if (pieceIndexAt(to) != -1) {
-                            move.flags |= Move.FLAG_CAPTURE;
-                        }
-                        if (type == Type.PAWN && (to / 8 == 0 || to / 8 == 7)) {
-                            move.flags |= Move.FLAG_PROMOTION;
-                        }
-                        if (type == Type.PAWN && to == enPassantSquare) {
-                            move.flags |= Move.FLAG_EN_PASSANT;
-                        }
-                        
-                        moves.add(move);
-                    }
-                }
+                addMoves(moves, pieceIdx, from, legalTargets(from, type, targetMask));
             }
         }
         
-        // Add castling moves
-        moves.addAll(generateCastlingMoves());
-        
-        return moves;
+        if (checkers == 0 && !capturesOnly) {
+            generateCastlingMoves(moves);
+        }
     }
 
     
-    private List<Move> generateCastlingMoves() {
-        List<Move> castles = new ArrayList<>();
-        
+    private void addMoves(MoveList moves, int pieceIdx, int from, long targets) {
+        boolean pawn = pieceIdx % 6 == Type.PAWN.ordinal();
+
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            
+            int flags = 0;
+            int captured = pieceIndexAt(to);
+            if (pawn && to == enPassantSquare) {
+                captured = sideToMove == Color.WHITE ? BP : WP;
+                flags |= Move.FLAG_EN_PASSANT;
+            }
+            if (captured == -1) {
+                captured = PackedMove.NO_PIECE;
+            } else {
+                flags |= Move.FLAG_CAPTURE;
+            }
+
+            if (pawn && (to / 8 == 0 || to / 8 == 7)) {
+                for (Type promotion : PROMOTION_TYPES) {
+                    moves.add(PackedMove.encode(from, to, pieceIdx, captured,
+                        promotion.ordinal(), flags | Move.FLAG_PROMOTION));
+                }
+            } else {
+                moves.add(PackedMove.encode(from, to, pieceIdx, captured, 0, flags));
+            }
+        }
+    }
+
+    
+    // Pushes and captures for all unpinned pawns at once: shift the pawn set
+    // towards the target squares, mask, then recover each origin as to - delta
+    private void generatePawnMovesSetwise(MoveList moves, boolean capturesOnly) {
+        boolean white = sideToMove == Color.WHITE;
+        int pawnIdx = white ? WP : BP;
+        long free = bb[pawnIdx] & ~pinned;
+        long empty = ~allOcc();
+        long enemy = white ? blackOcc() : whiteOcc();
+        int up = white ? 8 : -8;
+
+        long single = shift(free, up) & empty;
+        long dbl = shift(single & (white ? RANK_3 : RANK_6), up) & empty;
+        long towardA = shift(free & ~FILE_A, up - 1) & enemy;
+        long towardH = shift(free & ~FILE_H, up + 1) & enemy;
+
+        // Only pushes that promote count as tactical
+        if (capturesOnly) {
+            single &= PROMOTION_RANKS;
+            dbl = 0L;
+        }
+
+        addPawnMoves(moves, pawnIdx, single & checkMask, up);
+        addPawnMoves(moves, pawnIdx, dbl & checkMask, 2 * up);
+        addPawnMoves(moves, pawnIdx, towardA & checkMask, up - 1);
+        addPawnMoves(moves, pawnIdx, towardH & checkMask, up + 1);
+
+        if (enPassantSquare != -1) {
+            long candidates = free & Attacks.PAWN[sideToMove.opposite().ordinal()][enPassantSquare];
+            while (candidates != 0) {
+                int from = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                if (isLegalEnPassant(from)) {
+                    moves.add(PackedMove.encode(from, enPassantSquare, pawnIdx, white ? BP : WP, 0,
+                        Move.FLAG_EN_PASSANT | Move.FLAG_CAPTURE));
+                }
+            }
+        }
+
+        // Pinned pawns may only move along the pin ray; rare, so one by one
+        long pinnedPawns = bb[pawnIdx] & pinned;
+        while (pinnedPawns != 0) {
+            int from = Long.numberOfTrailingZeros(pinnedPawns);
+            pinnedPawns &= pinnedPawns - 1;
+            long targets = legalTargets(from, Type.PAWN);
+            if (capturesOnly) {
+                targets &= enemy | PROMOTION_RANKS | (enPassantSquare == -1 ? 0L : 1L << enPassantSquare);
+            }
+            addMoves(moves, pawnIdx, from, targets);
+        }
+    }
+
+    
+    private void addPawnMoves(MoveList moves, int pawnIdx, long targets, int delta) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+
+            int from = to - delta;
+            int captured = pieceIndexAt(to);
+            int flags = captured == -1 ? 0 : Move.FLAG_CAPTURE;
+            if (captured == -1) captured = PackedMove.NO_PIECE;
+
+            if ((PROMOTION_RANKS & (1L << to)) != 0) {
+                for (Type promotion : PROMOTION_TYPES) {
+                    moves.add(PackedMove.encode(from, to, pawnIdx, captured,
+                        promotion.ordinal(), flags | Move.FLAG_PROMOTION));
+                }
+            } else {
+                moves.add(PackedMove.encode(from, to, pawnIdx, captured, 0, flags));
+            }
+        }
+    }
+
+    
+    private static long shift(long bits, int delta) {
+        return delta > 0 ? bits << delta : bits >>> -delta;
+    }
+
+    
+    private void generateCastlingMoves(MoveList moves) {
         if (sideToMove == Color.WHITE) {
             // Kingside castling
             if ((castlingRights & 0b1000) != 0 && 
@@ -407,11 +859,7 @@ public class Board {
                 !isSquareAttacked(4, Color.BLACK) &&
                 !isSquareAttacked(5, Color.BLACK) &&
                 !isSquareAttacked(6, Color.BLACK)) {
-                
-                Move move = new Move();
-                move.piece = new Piece(Type.KING, Color.WHITE);
-                move.flags = Move.FLAG_SHORT_CASTLE;
-                castles.add(move);
+                moves.add(PackedMove.encode(4, 6, WK, PackedMove.NO_PIECE, 0, Move.FLAG_SHORT_CASTLE));
             }
             
             // Queenside castling
@@ -420,11 +868,7 @@ public class Board {
                 !isSquareAttacked(4, Color.BLACK) &&
                 !isSquareAttacked(3, Color.BLACK) &&
                 !isSquareAttacked(2, Color.BLACK)) {
-                
-                Move move = new Move();
-                move.piece = new Piece(Type.KING, Color.WHITE);
-                move.flags = Move.FLAG_LONG_CASTLE;
-                castles.add(move);
+                moves.add(PackedMove.encode(4, 2, WK, PackedMove.NO_PIECE, 0, Move.FLAG_LONG_CASTLE));
             }
         } else {
             // Black castling
@@ -433,11 +877,7 @@ public class Board {
                 !isSquareAttacked(60, Color.WHITE) &&
                 !isSquareAttacked(61, Color.WHITE) &&
                 !isSquareAttacked(62, Color.WHITE)) {
-                
-                Move move = new Move();
-                move.piece = new Piece(Type.KING, Color.BLACK);
-                move.flags = Move.FLAG_SHORT_CASTLE;
-                castles.add(move);
+                moves.add(PackedMove.encode(60, 62, BK, PackedMove.NO_PIECE, 0, Move.FLAG_SHORT_CASTLE));
             }
             
             if ((castlingRights & 0b0001) != 0 && 
@@ -445,25 +885,26 @@ public class Board {
                 !isSquareAttacked(60, Color.WHITE) &&
                 !isSquareAttacked(59, Color.WHITE) &&
                 !isSquareAttacked(58, Color.WHITE)) {
-                
-                Move move = new Move();
-                move.piece = new Piece(Type.KING, Color.BLACK);
-                move.flags = Move.FLAG_LONG_CASTLE;
-                castles.add(move);
+                moves.add(PackedMove.encode(60, 58, BK, PackedMove.NO_PIECE, 0, Move.FLAG_LONG_CASTLE));
             }
         }
-        
-        return castles;
+    }
+
+    
+    private boolean hasLegalMoves() {
+        MoveList moves = new MoveList();
+        generateLegalMoves(moves);
+        return !moves.isEmpty();
     }
 
     
     public boolean isCheckmate() {
-        return isInCheck(sideToMove) && generateAllLegalMoves().isEmpty();
+        return isInCheck(sideToMove) && !hasLegalMoves();
     }
 
     
     public boolean isStalemate() {
-        return !isInCheck(sideToMove) && generateAllLegalMoves().isEmpty();
+        return !isInCheck(sideToMove) && !hasLegalMoves();
     }
 
     
@@ -517,9 +958,6 @@ public class Board {
             move.flags |= Move.FLAG_CAPTURE;
         }
 
-        saveState();
-        lastMoveFrom = fromIdx;
-        lastMoveTo = toIdx;
         makeMove(move);
         
         // Check for check/mate
@@ -536,17 +974,26 @@ public class Board {
         if ((move.flags & Move.FLAG_SHORT_CASTLE) != 0 ||
             (move.flags & Move.FLAG_LONG_CASTLE) != 0) {
             
-            if (sideToMove == Color.WHITE) {
-                lastMoveFrom = 4;
-                lastMoveTo = (move.flags & Move.FLAG_SHORT_CASTLE) != 0 ? 6 : 2;
-            } else {
-                lastMoveFrom = 60;
-                lastMoveTo = (move.flags & Move.FLAG_SHORT_CASTLE) != 0 ? 62 : 58;
+            // Rights, an empty path and no attacked squares are all checked
+            // by the legal generator, so castling is matched against it too
+            int kingFrom = sideToMove == Color.WHITE ? 4 : 60;
+            int kingTo = kingFrom + ((move.flags & Move.FLAG_SHORT_CASTLE) != 0 ? 2 : -2);
+            MoveList legal = new MoveList();
+            generateLegalMoves(legal);
+            for (int i = 0; i < legal.size(); i++) {
+                int candidate = legal.get(i);
+                if (PackedMove.from(candidate) == kingFrom && PackedMove.to(candidate) == kingTo
+                        && PackedMove.pieceType(candidate) == Type.KING) {
+                    move.disambiguation = kingFrom;
+                    makeMove(candidate);
+                    if (isInCheck(sideToMove)) {
+                        move.flags |= Move.FLAG_CHECK;
+                        if (isCheckmate()) move.flags |= Move.FLAG_MATE;
+                    }
+                    return;
+                }
             }
-            
-            saveState();
-            makeMove(move);
-            return;
+            throw new IllegalMoveException("Castling is not legal here");
         }
 
         int target = move.target & 0xFF;
@@ -589,9 +1036,6 @@ public class Board {
             move.flags |= Move.FLAG_EN_PASSANT;
         }
 
-        saveState();
-        lastMoveFrom = fromSquare;
-        lastMoveTo = target;
         makeMove(move);
         
         // Check for check/mate
@@ -610,30 +1054,82 @@ public class Board {
 
     
     public void makeMove(Move move) {
+        makeMove(encode(move));
+    }
+
+    
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flags = PackedMove.flags(move);
+
+        pushState(move);
+        lastMoveFrom = from;
+        lastMoveTo = to;
+
+        zobristKey ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.enPassant(enPassantSquare);
+
+        if ((flags & (Move.FLAG_SHORT_CASTLE | Move.FLAG_LONG_CASTLE)) != 0) {
+            // executeCastling toggles bits and assumes a legal castle, which
+            // resolveAndMakeMove and the move generator check; on occupied
+            // squares it would desync bb, occupancy and mailbox
+            assert (occupancy & castlingPath(to)) == 0 : "Castling through occupied squares";
+            executeCastling((flags & Move.FLAG_SHORT_CASTLE) != 0);
+            castlingRights &= sideToMove == Color.WHITE ? 0b0011 : 0b1100;
+            enPassantSquare = -1;
+        } else {
+            makeRegularMove(move, from, to);
+        }
+
+        zobristKey ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.SIDE;
+        sideToMove = sideToMove.opposite();
+    }
+
+    
+    private int encode(Move move) {
+        int pieceIdx = getPieceIndex(move.piece.type(), move.piece.color());
+
+        if ((move.flags & (Move.FLAG_SHORT_CASTLE | Move.FLAG_LONG_CASTLE)) != 0) {
+            int kingFrom = sideToMove == Color.WHITE ? 4 : 60;
+            int kingTo = kingFrom + ((move.flags & Move.FLAG_SHORT_CASTLE) != 0 ? 2 : -2);
+            int kingIdx = sideToMove == Color.WHITE ? WK : BK;
+            return PackedMove.encode(kingFrom, kingTo, kingIdx, PackedMove.NO_PIECE, 0, move.flags);
+        }
+
         int from = move.disambiguation;
         int to = move.target & 0xFF;
-        int pieceIdx = getPieceIndex(move.piece.type(), move.piece.color());
 
-        if ((move.flags & Move.FLAG_SHORT_CASTLE) != 0) {
-            executeCastling(true);
-            sideToMove = sideToMove.opposite();
-            return;
+        int captured;
+        if ((move.flags & Move.FLAG_EN_PASSANT) != 0) {
+            captured = sideToMove == Color.WHITE ? BP : WP;
+        } else {
+            captured = pieceIndexAt(to);
+            if (captured == -1) captured = PackedMove.NO_PIECE;
         }
-        if ((move.flags & Move.FLAG_LONG_CASTLE) != 0) {
-            executeCastling(false);
-            sideToMove = sideToMove.opposite();
-            return;
+
+        int promotion = 0;
+        if ((move.flags & Move.FLAG_PROMOTION) != 0) {
+            promotion = (move.promotion != null ? move.promotion : Type.QUEEN).ordinal();
         }
 
+        return PackedMove.encode(from, to, pieceIdx, captured, promotion, move.flags);
+    }
+
+    
+    private void makeRegularMove(int move, int from, int to) {
+        int pieceIdx = PackedMove.piece(move);
+        int capIdx = PackedMove.captured(move);
+        Type type = TYPES[pieceIdx % 6];
+
         // Update castling rights when king or rook moves
-        if (move.piece.type() == Type.KING) {
+        if (type == Type.KING) {
             if (sideToMove == Color.WHITE) {
                 castlingRights &= 0b0011;
             } else {
                 castlingRights &= 0b1100;
             }
         }
-        if (move.piece.type() == Type.ROOK) {
+        if (type == Type.ROOK) {
             if (sideToMove == Color.WHITE) {
                 if (from == 0) castlingRights &= ~0b0100;
                 if (from == 7) castlingRights &= ~0b1000;
@@ -643,84 +1139,152 @@ public class Board {
             }
         }
 
-        bb[pieceIdx] &= ~(1L << from);
+        removePiece(pieceIdx, from);
 
-        if ((move.flags & Move.FLAG_EN_PASSANT) != 0) {
-            int cap = sideToMove == Color.WHITE ? to - 8 : to + 8;
-            Piece capturedPiece = new Piece(Type.PAWN, sideToMove.opposite());
-            if (sideToMove == Color.WHITE) {
-                capturedByWhite.add(capturedPiece);
+        if (capIdx != PackedMove.NO_PIECE) {
+            captured[capIdx]++;
+
+            if ((PackedMove.flags(move) & Move.FLAG_EN_PASSANT) != 0) {
+                removePiece(capIdx, sideToMove == Color.WHITE ? to - 8 : to + 8);
             } else {
-                capturedByBlack.add(capturedPiece);
+                removePiece(capIdx, to);
             }
-            bb[sideToMove == Color.WHITE ? BP : WP] &= ~(1L << cap);
-        } else {
-            int capIdx = pieceIndexAt(to);
-            if (capIdx != -1) {
-                Piece capturedPiece = getPieceAt(to);
-                if (sideToMove == Color.WHITE) {
-                    capturedByWhite.add(capturedPiece);
-                } else {
-                    capturedByBlack.add(capturedPiece);
-                }
-                bb[capIdx] &= ~(1L << to);
                 
-                // Update castling rights when rook is captured
-                if (capturedPiece.type() == Type.ROOK) {
-                    if (capturedPiece.color() == Color.WHITE) {
-                        if (to == 0) castlingRights &= ~0b0100;
-                        if (to == 7) castlingRights &= ~0b1000;
-                    } else {
-                        if (to == 56) castlingRights &= ~0b0001;
-                        if (to == 63) castlingRights &= ~0b0010;
-                    }
-                }
+            // Update castling rights when rook is captured
+            if (capIdx == WR) {
+                if (to == 0) castlingRights &= ~0b0100;
+                if (to == 7) castlingRights &= ~0b1000;
+            } else if (capIdx == BR) {
+                if (to == 56) castlingRights &= ~0b0001;
+                if (to == 63) castlingRights &= ~0b0010;
             }
         }
 
-        if ((move.flags & Move.FLAG_PROMOTION) != 0) {
-            bb[sideToMove == Color.WHITE ? WQ : BQ] |= 1L << to;
+        if (PackedMove.isPromotion(move)) {
+            putPiece(getPieceIndex(TYPES[PackedMove.promotion(move)], sideToMove), to);
         } else {
-            bb[pieceIdx] |= 1L << to;
+            putPiece(pieceIdx, to);
         }
 
         // Set en passant square if pawn double push
-        if (move.piece.type() == Type.PAWN && Math.abs(to - from) == 16) {
+        if (type == Type.PAWN && Math.abs(to - from) == 16) {
             enPassantSquare = (from + to) / 2;
         } else {
             enPassantSquare = -1;
         }
-
-        sideToMove = sideToMove.opposite();
     }
 
     
-    private void executeCastling(boolean kingside) {
-        if (sideToMove == Color.WHITE) {
-            if (kingside) {
-                bb[WK] = 0x0000000000000040L;
-                bb[WR] &= ~0x0000000000000080L;
-                bb[WR] |= 0x0000000000000020L;
-                castlingRights &= 0b0011;
-            } else {
-                bb[WK] = 0x0000000000000004L;
-                bb[WR] &= ~0x0000000000000001L;
-                bb[WR] |= 0x0000000000000008L;
-                castlingRights &= 0b0011;
-            }
+    public void unmakeMove(int move) {
+        ply--;
+        sideToMove = sideToMove.opposite();
+
+        int state = stateHistory[ply];
+        castlingRights = state & 0xF;
+        enPassantSquare = restoreSquare(state >>> 4);
+        lastMoveFrom = restoreSquare(state >>> 11);
+        lastMoveTo = restoreSquare(state >>> 18);
+
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flags = PackedMove.flags(move);
+        int pieceIdx = PackedMove.piece(move);
+        int capIdx = PackedMove.captured(move);
+
+        if ((flags & Move.FLAG_SHORT_CASTLE) != 0) {
+            executeCastling(true);
+        } else if ((flags & Move.FLAG_LONG_CASTLE) != 0) {
+            executeCastling(false);
         } else {
-            if (kingside) {
-                bb[BK] = 0x4000000000000000L;
-                bb[BR] &= ~0x8000000000000000L;
-                bb[BR] |= 0x2000000000000000L;
-                castlingRights &= 0b1100;
+            if (PackedMove.isPromotion(move)) {
+                removePiece(getPieceIndex(TYPES[PackedMove.promotion(move)], sideToMove), to);
             } else {
-                bb[BK] = 0x0400000000000000L;
-                bb[BR] &= ~0x0100000000000000L;
-                bb[BR] |= 0x0800000000000000L;
-                castlingRights &= 0b1100;
+                removePiece(pieceIdx, to);
+            }
+            putPiece(pieceIdx, from);
+
+            if (capIdx != PackedMove.NO_PIECE) {
+                captured[capIdx]--;
+                if ((flags & Move.FLAG_EN_PASSANT) != 0) {
+                    putPiece(capIdx, sideToMove == Color.WHITE ? to - 8 : to + 8);
+                } else {
+                    putPiece(capIdx, to);
+                }
             }
         }
+
+        zobristKey = keyHistory[ply];
+    }
+
+    
+    private static int restoreSquare(int bits) {
+        bits &= 0x7F;
+        return bits == 0x7F ? -1 : bits;
+    }
+
+    
+    // Moves king and rook between their castling squares. Every step is an
+    // XOR toggle, so calling it again with the same side to move undoes it.
+    // Squares between king and rook, which must be empty to castle to kingTo
+    private static long castlingPath(int kingTo) {
+        return switch (kingTo) {
+            case 6 -> 0x60L;
+            case 2 -> 0x0EL;
+            case 62 -> 0x60L << 56;
+            case 58 -> 0x0EL << 56;
+            default -> 0L;
+        };
+    }
+
+    
+    private void executeCastling(boolean kingside) {
+        boolean white = sideToMove == Color.WHITE;
+        int kingFrom = white ? 4 : 60;
+        int kingTo = kingside ? kingFrom + 2 : kingFrom - 2;
+        int rookFrom = kingside ? kingFrom + 3 : kingFrom - 4;
+        int rookTo = kingside ? kingFrom + 1 : kingFrom - 1;
+
+        togglePiece(white ? WK : BK, kingFrom);
+        togglePiece(white ? WK : BK, kingTo);
+        togglePiece(white ? WR : BR, rookFrom);
+        togglePiece(white ? WR : BR, rookTo);
+    }
+
+    
+    private void togglePiece(int pieceIdx, int square) {
+        long bit = 1L << square;
+        bb[pieceIdx] ^= bit;
+        if (pieceIdx < 6) whiteOccupancy ^= bit; else blackOccupancy ^= bit;
+        occupancy ^= bit;
+        boolean added = (bb[pieceIdx] & bit) != 0;
+        mailbox[square] = added ? (byte) pieceIdx : EMPTY;
+        addEvaluation(pieceIdx, square, added ? 1 : -1);
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceIdx][square];
+        if (pieceIdx % 6 == WP) pawnKey ^= Zobrist.PIECE_SQUARE[pieceIdx][square];
+    }
+
+    
+    private void putPiece(int pieceIdx, int square) {
+        long bit = 1L << square;
+        bb[pieceIdx] |= bit;
+        if (pieceIdx < 6) whiteOccupancy |= bit; else blackOccupancy |= bit;
+        occupancy |= bit;
+        mailbox[square] = (byte) pieceIdx;
+        addEvaluation(pieceIdx, square, 1);
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceIdx][square];
+        if (pieceIdx % 6 == WP) pawnKey ^= Zobrist.PIECE_SQUARE[pieceIdx][square];
+    }
+
+    
+    private void removePiece(int pieceIdx, int square) {
+        long bit = 1L << square;
+        bb[pieceIdx] &= ~bit;
+        if (pieceIdx < 6) whiteOccupancy &= ~bit; else blackOccupancy &= ~bit;
+        occupancy &= ~bit;
+        mailbox[square] = EMPTY;
+        addEvaluation(pieceIdx, square, -1);
+        zobristKey ^= Zobrist.PIECE_SQUARE[pieceIdx][square];
+        if (pieceIdx % 6 == WP) pawnKey ^= Zobrist.PIECE_SQUARE[pieceIdx][square];
     }
 
     
@@ -770,24 +1334,4 @@ public class Board {
     public class IllegalMoveException extends Exception {
         public IllegalMoveException(String message) { super(message); }
     }
-
-    
-    private static class BoardState {
-        
-        long[] bb;
-        
-        Color sideToMove;
-        
-        int enPassantSquare;
-        
-        int castlingRights;
-        
-        int lastMoveFrom;
-        
-        int lastMoveTo;
-        
-        List<Piece> capturedByWhite;
-        
-        List<Piece> capturedByBlack;
-    }
 }
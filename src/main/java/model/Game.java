@@ -28,4 +28,16 @@ public class Game {
 
         moves.add(last);
     }
+
+    public void addMove(int move) {
+        board.makeMove(move);
+
+        Move last = Move.fromPacked(move);
+        if (board.isInCheck(board.sideToMove)) {
+            last.flags |= Move.FLAG_CHECK;
+            if (board.isCheckmate()) last.flags |= Move.FLAG_MATE;
+        }
+
+        moves.add(last);
+    }
 }
@@ -0,0 +1,249 @@
+package model;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MagicGenerator {
+
+    private static final String USAGE =
+        "Usage: MagicGenerator [--verify] [--reduce <bits>] [--seed <n>] [--tries <n>] [--out <file>]";
+
+    private final Random random;
+    private final int tries;
+
+    // Scratch buffers reused across every check; the stamp avoids clearing
+    // the whole slot array for each candidate magic.
+    private final long[] slots = new long[1 << 12];
+    private final int[] stamps = new int[1 << 12];
+    private int stamp;
+
+
+    public MagicGenerator(long seed, int tries) {
+        this.random = new Random(seed);
+        this.tries = tries;
+    }
+
+
+    public record Result(long[] magics, int[] bits) {
+        public long tableSize() {
+            long size = 0;
+            for (int b : bits) size += 1L << b;
+            return size;
+        }
+    }
+
+
+    public Result generate(boolean rook, long[] current, int[] currentBits, int reduce) {
+        long[] magics = new long[64];
+        int[] bits = new int[64];
+
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = rook ? MagicBitboards.generateRookMask(sq) : MagicBitboards.generateBishopMask(sq);
+            long[] occupancies = occupancies(mask);
+            long[] attacks = attacks(rook, sq, occupancies);
+            int full = Long.bitCount(mask);
+
+            // An existing magic already below the target is kept, not regressed
+            boolean found = false;
+            for (int b = Math.max(1, Math.min(currentBits[sq], full - reduce)); b <= full && !found; b++) {
+                if (b == currentBits[sq] && verify(current[sq], b, occupancies, attacks)) {
+                    magics[sq] = current[sq];
+                    bits[sq] = b;
+                    found = true;
+                    break;
+                }
+                long magic = search(mask, b, occupancies, attacks);
+                if (magic != 0) {
+                    magics[sq] = magic;
+                    bits[sq] = b;
+                    found = true;
+                }
+            }
+            if (!found) {
+                throw new IllegalStateException("No magic found for square " + sq + " in " + tries + " tries");
+            }
+        }
+        return new Result(magics, bits);
+    }
+
+
+    // Returns the index of the first square whose magic does not map every
+    // occupancy without a destructive collision, or -1 if all are correct.
+    public int verify(boolean rook, long[] magics, int[] bits) {
+        for (int sq = 0; sq < 64; sq++) {
+            long mask = rook ? MagicBitboards.generateRookMask(sq) : MagicBitboards.generateBishopMask(sq);
+            long[] occupancies = occupancies(mask);
+            if (!verify(magics[sq], bits[sq], occupancies, attacks(rook, sq, occupancies))) return sq;
+        }
+        return -1;
+    }
+
+
+    private long search(long mask, int bits, long[] occupancies, long[] attacks) {
+        for (int i = 0; i < tries; i++) {
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            // Good magics push many mask bits into the top byte
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) continue;
+            if (verify(magic, bits, occupancies, attacks)) return magic;
+        }
+        return 0L;
+    }
+
+
+    // Two occupancies may share a slot only when their attack sets are equal
+    private boolean verify(long magic, int bits, long[] occupancies, long[] attacks) {
+        int shift = 64 - bits;
+        stamp++;
+        for (int i = 0; i < occupancies.length; i++) {
+            int index = (int) ((occupancies[i] * magic) >>> shift);
+            if (stamps[index] != stamp) {
+                stamps[index] = stamp;
+                slots[index] = attacks[i];
+            } else if (slots[index] != attacks[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static long[] occupancies(long mask) {
+        long[] occupancies = new long[1 << Long.bitCount(mask)];
+        for (int i = 0; i < occupancies.length; i++) {
+            occupancies[i] = MagicBitboards.getOccupancyVariation(i, mask);
+        }
+        return occupancies;
+    }
+
+
+    private static long[] attacks(boolean rook, int square, long[] occupancies) {
+        long[] attacks = new long[occupancies.length];
+        for (int i = 0; i < attacks.length; i++) {
+            attacks[i] = rook
+                ? MagicBitboards.generateRookAttacks(square, occupancies[i])
+                : MagicBitboards.generateBishopAttacks(square, occupancies[i]);
+        }
+        return attacks;
+    }
+
+
+    private static void writeSource(PrintStream out, Result rook, Result bishop) {
+        out.println("package model;");
+        out.println();
+        out.println("// Generated by MagicGenerator - do not edit by hand.");
+        out.println("// Every magic is verified to map all occupancy subsets of its mask without a");
+        out.println("// destructive collision. Regenerate with:");
+        out.println("//   java -cp build/target/classes model.MagicGenerator --out src/main/java/model/MagicNumbers.java");
+        out.println("final class MagicNumbers {");
+        writeBits(out, "ROOK_BITS", rook.bits());
+        out.println();
+        writeMagics(out, "ROOK_MAGICS", rook.magics());
+        out.println();
+        writeBits(out, "BISHOP_BITS", bishop.bits());
+        out.println();
+        writeMagics(out, "BISHOP_MAGICS", bishop.magics());
+        out.println();
+        out.println("    private MagicNumbers() {}");
+        out.println("}");
+    }
+
+
+    private static void writeBits(PrintStream out, String name, int[] bits) {
+        out.println("    static final int[] " + name + " = {");
+        String format = Arrays.stream(bits).max().getAsInt() >= 10 ? "%2d" : "%d";
+        for (int row = 0; row < 8; row++) {
+            StringBuilder line = new StringBuilder("        ");
+            for (int col = 0; col < 8; col++) {
+                line.append(String.format(format, bits[row * 8 + col]));
+                if (row * 8 + col < 63) line.append(col < 7 ? ", " : ",");
+            }
+            out.println(line);
+        }
+        out.println("    };");
+    }
+
+
+    private static void writeMagics(PrintStream out, String name, long[] magics) {
+        out.println("    static final long[] " + name + " = {");
+        for (int row = 0; row < 16; row++) {
+            StringBuilder line = new StringBuilder("        ");
+            for (int col = 0; col < 4; col++) {
+                int sq = row * 4 + col;
+                line.append(String.format("0x%016XL", magics[sq]));
+                if (sq < 63) line.append(col < 3 ? ", " : ",");
+            }
+            out.println(line);
+        }
+        out.println("    };");
+    }
+
+
+    private static String describe(String name, Result result) {
+        long size = result.tableSize();
+        return String.format("%-7s %7d entries (%d KB)", name, size, size * 8 / 1024);
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        int reduce = 0;
+        long seed = 0x5EED_CAFEL;
+        int tries = 1_000_000;
+        String outFile = null;
+        boolean verifyOnly = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                // Every option but --verify takes a value
+                if (!args[i].equals("--verify") && i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--reduce" -> reduce = Integer.parseInt(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--tries" -> tries = Integer.parseInt(args[++i]);
+                    case "--out" -> outFile = args[++i];
+                    case "--verify" -> verifyOnly = true;
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+
+        MagicGenerator generator = new MagicGenerator(seed, tries);
+
+        if (verifyOnly) {
+            int badRook = generator.verify(true, MagicNumbers.ROOK_MAGICS, MagicNumbers.ROOK_BITS);
+            int badBishop = generator.verify(false, MagicNumbers.BISHOP_MAGICS, MagicNumbers.BISHOP_BITS);
+            System.out.println(describe("Rook", new Result(MagicNumbers.ROOK_MAGICS, MagicNumbers.ROOK_BITS)));
+            System.out.println(describe("Bishop", new Result(MagicNumbers.BISHOP_MAGICS, MagicNumbers.BISHOP_BITS)));
+            if (badRook >= 0 || badBishop >= 0) {
+                System.out.println("FAILED: rook square " + badRook + ", bishop square " + badBishop);
+                System.exit(1);
+            }
+            System.out.println("All magics verified");
+            return;
+        }
+
+        Result rook = generator.generate(true, MagicNumbers.ROOK_MAGICS, MagicNumbers.ROOK_BITS, reduce);
+        Result bishop = generator.generate(false, MagicNumbers.BISHOP_MAGICS, MagicNumbers.BISHOP_BITS, reduce);
+        System.out.println(describe("Rook", rook));
+        System.out.println(describe("Bishop", bishop));
+
+        if (outFile == null) {
+            writeSource(System.out, rook, bishop);
+        } else {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(outFile)), false, StandardCharsets.UTF_8)) {
+                writeSource(out, rook, bishop);
+            }
+            System.out.println("Wrote " + outFile);
+        }
+    }
+}
@@ -9,12 +9,24 @@ public class Move{
     public static final byte FLAG_MATE        =  0b01000000;
 
     public Piece piece;         
+    public Type promotion;
     public int target;
     public int flags;
     public int disambiguation; 
     
     public Move() {};
 
+    
+    public static Move fromPacked(int packed) {
+        Move move = new Move();
+        move.piece = Piece.of(PackedMove.pieceType(packed), PackedMove.pieceColor(packed));
+        move.promotion = PackedMove.promotionType(packed);
+        move.target = PackedMove.to(packed);
+        move.disambiguation = PackedMove.from(packed);
+        move.flags = PackedMove.flags(packed);
+        return move;
+    }
+
     @Override
     public String toString() {
 
@@ -24,7 +36,7 @@ public class Move{
         StringBuilder sb = new StringBuilder();
 
         if (piece.type() != Type.PAWN) {
-            sb.append(piece.toString().charAt(0));
+            sb.append(piece.type().toSANChar());
         }
 
         if ((flags & FLAG_CAPTURE) != 0) {
@@ -38,7 +50,7 @@ public class Move{
 
         if ((flags & FLAG_PROMOTION) != 0) {
             sb.append("=");
-            sb.append(piece.toString().charAt(0));
+            sb.append((promotion != null ? promotion : Type.QUEEN).toSANChar());
         }
 
         if ((flags & FLAG_CHECK) != 0) sb.append("+");
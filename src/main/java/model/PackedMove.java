@@ -0,0 +1,84 @@
+package model;
+
+// A move packed into a single int, so that move lists can be plain int[]s:
+//
+//   bits  0- 5  from square
+//   bits  6-11  to square
+//   bits 12-15  moving piece (Board bitboard index, 0-11)
+//   bits 16-19  captured piece (bitboard index, NO_PIECE if none)
+//   bits 20-22  promotion type ordinal (0 if none, pawns never promote to pawns)
+//   bits 24-31  Move.FLAG_* bits
+public final class PackedMove {
+    public static final int NONE = 0;
+    public static final int NO_PIECE = 0xF;
+
+    private static final Type[] TYPES = Type.values();
+
+    private PackedMove() {}
+
+    public static int encode(int from, int to, int piece, int captured, int promotion, int flags) {
+        return from
+            | to << 6
+            | piece << 12
+            | captured << 16
+            | promotion << 20
+            | (flags & 0xFF) << 24;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static int captured(int move) {
+        return (move >>> 16) & 0xF;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 20) & 0x7;
+    }
+
+    public static int flags(int move) {
+        return move >>> 24;
+    }
+
+    public static boolean isCapture(int move) {
+        return captured(move) != NO_PIECE;
+    }
+
+    public static boolean isPromotion(int move) {
+        return promotion(move) != 0;
+    }
+
+    public static Type pieceType(int move) {
+        return TYPES[piece(move) % 6];
+    }
+
+    public static Color pieceColor(int move) {
+        return piece(move) < 6 ? Color.WHITE : Color.BLACK;
+    }
+
+    public static Type promotionType(int move) {
+        return isPromotion(move) ? TYPES[promotion(move)] : null;
+    }
+
+    // Coordinate notation as used by perft and UCI, e.g. "e2e4", "e7e8q", "e1g1"
+    public static String toCoordinate(int move) {
+        String s = squareName(from(move)) + squareName(to(move));
+        if (isPromotion(move)) {
+            s += Character.toLowerCase(promotionType(move).toSANChar());
+        }
+        return s;
+    }
+
+    private static String squareName(int sq) {
+        return "" + (char)('a' + sq % 8) + (char)('1' + sq / 8);
+    }
+}
@@ -0,0 +1,218 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Perft {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String USAGE = "Usage: perft <depth> [--fen <fen>] [--threads <n>] [--hash <mb>]";
+
+    private final Cache cache;
+
+
+    public Perft() {
+        this(0);
+    }
+
+
+    public Perft(int cacheSizeMb) {
+        this.cache = cacheSizeMb > 0 ? new Cache(cacheSizeMb) : null;
+    }
+
+
+    public long count(Board board, int depth) {
+        return count(board, depth, newMoveLists(depth));
+    }
+
+
+    private long count(Board board, int depth, MoveList[] lists) {
+        if (depth == 0) return 1;
+
+        MoveList moves = lists[depth];
+        board.generateLegalMoves(moves);
+        if (depth == 1) return moves.size();
+
+        long key = 0L;
+        if (cache != null) {
+            key = board.getZobristKey();
+            long cached = cache.probe(key, depth);
+            if (cached >= 0) return cached;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            nodes += count(board, depth - 1, lists);
+            board.unmakeMove(move);
+        }
+
+        if (cache != null) cache.store(key, depth, nodes);
+        return nodes;
+    }
+
+
+    // Node counts per root move; at depth 0 there are no root moves
+    public List<Result> divide(Board board, int depth) {
+        if (depth <= 0) return new ArrayList<>();
+
+        MoveList[] lists = newMoveLists(depth);
+        MoveList moves = lists[depth];
+        board.generateLegalMoves(moves);
+
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.makeMove(move);
+            results.add(new Result(PackedMove.toCoordinate(move), count(board, depth - 1, lists)));
+            board.unmakeMove(move);
+        }
+        return results;
+    }
+
+
+    public List<Result> divideParallel(Board board, int depth, int threads) {
+        if (depth <= 0) return new ArrayList<>();
+
+        MoveList moves = new MoveList();
+        board.generateLegalMoves(moves);
+
+        List<RootTask> tasks = new ArrayList<>();
+        for (int i = 0; i < moves.size(); i++) {
+            tasks.add(new RootTask(board, moves.get(i), depth - 1));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> {
+                RootTask.invokeAll(tasks);
+                List<Result> results = new ArrayList<>();
+                for (RootTask task : tasks) results.add(task.join());
+                return results;
+            }).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    // One list per remaining depth, so recursion never allocates
+    private static MoveList[] newMoveLists(int depth) {
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) lists[i] = new MoveList();
+        return lists;
+    }
+
+
+    public record Result(String move, long nodes) {}
+
+
+    private class RootTask extends RecursiveTask<Result> {
+        private final Board board;
+        private final int move;
+        private final int depth;
+
+        RootTask(Board root, int move, int depth) {
+            this.board = new Board(root);
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Result compute() {
+            board.makeMove(move);
+            return new Result(PackedMove.toCoordinate(move), count(board, depth));
+        }
+    }
+
+
+    // Shared subtree-count cache. Each slot holds (key ^ data, data) so a
+    // slot torn by two racing writers fails the key check and is ignored.
+    private static class Cache {
+        private final long[] table;
+        private final int mask;
+
+        Cache(int sizeMb) {
+            // Two longs per slot; 1 << 29 slots keep the array length positive
+            int slots = Integer.highestOneBit((int) Math.min(sizeMb * 1024L * 1024L / 16, 1 << 29));
+            this.table = new long[slots * 2];
+            this.mask = slots - 1;
+        }
+
+        long probe(long key, int depth) {
+            int i = ((int) key & mask) << 1;
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && (data & 0xFF) == depth) {
+                return data >>> 8;
+            }
+            return -1;
+        }
+
+        void store(long key, int depth, long nodes) {
+            int i = ((int) key & mask) << 1;
+            long data = nodes << 8 | depth;
+            table[i] = key ^ data;
+            table[i + 1] = data;
+        }
+    }
+
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println(USAGE);
+            return;
+        }
+
+        int depth;
+        int threads = 1;
+        int hashMb = 0;
+        Board board;
+        try {
+            depth = Integer.parseInt(args[0]);
+            if (depth < 1) throw new IllegalArgumentException("Depth must be at least 1");
+            String fen = START_FEN;
+
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].startsWith("--") && i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                switch (args[i]) {
+                    case "--fen" -> fen = args[++i];
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--hash" -> hashMb = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            board = new Board(fen);
+        } catch (IllegalArgumentException e) {
+            // Also NumberFormatException and an invalid FEN
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+        Perft perft = new Perft(hashMb);
+
+        long start = System.nanoTime();
+        List<Result> results = threads > 1
+            ? perft.divideParallel(board, depth, threads)
+            : perft.divide(board, depth);
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (Result r : results) {
+            System.out.println(r.move() + ": " + r.nodes());
+            total += r.nodes();
+        }
+
+        long ms = Math.max(1, elapsed / 1_000_000);
+        System.out.println();
+        System.out.println("Moves: " + results.size());
+        System.out.println("Nodes: " + total);
+        System.out.println("Time:  " + ms + " ms");
+        System.out.println("NPS:   " + (total * 1000 / ms));
+    }
+}
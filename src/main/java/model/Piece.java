@@ -1,3 +1,26 @@
 package model;
 
-public record Piece(Type type, Color color) {}
+public record Piece(Type type, Color color) {
+    // One shared instance per piece kind, in Board bitboard index order
+    private static final Piece[] ALL = new Piece[12];
+
+    static {
+        for (Color color : Color.values()) {
+            for (Type type : Type.values()) {
+                ALL[index(type, color)] = new Piece(type, color);
+            }
+        }
+    }
+
+    public static Piece of(Type type, Color color) {
+        return ALL[index(type, color)];
+    }
+
+    static Piece fromIndex(int index) {
+        return ALL[index];
+    }
+
+    private static int index(Type type, Color color) {
+        return type.ordinal() + color.ordinal() * 6;
+    }
+}
@@ -0,0 +1,161 @@
+package model;
+
+// Middlegame and endgame piece values and piece-square tables. The source
+// tables are written from White's point of view as the board is printed
+// (a8 first); MG and EG fold in the material value, mirror them for Black
+// and negate Black's entries, so a position's score is a plain sum over
+// its pieces with White positive. Board keeps those sums up to date in
+// putPiece/removePiece.
+public final class PieceSquareTables {
+
+    // Indexed by Type ordinal
+    private static final int[] MG_VALUES = { 82, 337, 365, 477, 1025, 0 };
+    private static final int[] EG_VALUES = { 94, 281, 297, 512, 936, 0 };
+
+    // Game phase contributed by each piece; 24 with all minor and major pieces on
+    public static final int[] PHASE_WEIGHTS = { 0, 1, 1, 2, 4, 0 };
+    public static final int MAX_PHASE = 24;
+
+    private static final int[][] MG_TABLES = {
+        { // Pawn
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0
+        },
+        { // Knight
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+        },
+        { // Bishop
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+        },
+        { // Rook
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0
+        },
+        { // Queen
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20
+        },
+        { // King: stay behind the pawn shield
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20
+        }
+    };
+
+    private static final int[][] EG_TABLES = {
+        { // Pawn: passers and advanced pawns matter more
+              0,   0,   0,   0,   0,   0,   0,   0,
+             90,  90,  90,  90,  90,  90,  90,  90,
+             60,  60,  60,  60,  60,  60,  60,  60,
+             35,  35,  35,  35,  35,  35,  35,  35,
+             20,  20,  20,  20,  20,  20,  20,  20,
+             10,  10,  10,  10,  10,  10,  10,  10,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0
+        },
+        { // Knight
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+        },
+        { // Bishop
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,  10,  15,  15,  10,   5, -10,
+            -10,   5,  10,  15,  15,  10,   5, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+        },
+        { // Rook
+             10,  10,  10,  10,  10,  10,  10,  10,
+             15,  15,  15,  15,  15,  15,  15,  15,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0
+        },
+        { // Queen
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+            -10,   5,  10,  10,  10,  10,   5, -10,
+             -5,   5,  10,  15,  15,  10,   5,  -5,
+             -5,   5,  10,  15,  15,  10,   5,  -5,
+            -10,   5,  10,  10,  10,  10,   5, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20
+        },
+        { // King: head for the centre
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+        }
+    };
+
+    // Indexed by Board bitboard index and square
+    public static final int[][] MG = new int[12][64];
+    public static final int[][] EG = new int[12][64];
+
+    static {
+        for (int type = 0; type < 6; type++) {
+            for (int sq = 0; sq < 64; sq++) {
+                MG[type][sq] = MG_VALUES[type] + MG_TABLES[type][sq ^ 56];
+                EG[type][sq] = EG_VALUES[type] + EG_TABLES[type][sq ^ 56];
+                MG[type + 6][sq] = -(MG_VALUES[type] + MG_TABLES[type][sq]);
+                EG[type + 6][sq] = -(EG_VALUES[type] + EG_TABLES[type][sq]);
+            }
+        }
+    }
+
+    private PieceSquareTables() {}
+}
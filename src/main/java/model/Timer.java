@@ -107,6 +107,11 @@ public class Timer {
     }
     
     
+    public synchronized long getIncrementMs(Color color) {
+        return color == Color.WHITE ? whiteIncrementMs : blackIncrementMs;
+    }
+    
+    
     public synchronized String getFormattedTime(Color color) {
         long timeMs = getRemainingTimeMs(color);
         if (timeMs < 0) timeMs = 0;
@@ -0,0 +1,36 @@
+package model;
+
+import java.util.Random;
+
+// Random keys for position hashing. The seed is fixed so that keys are
+// stable between runs and can be stored in files (books, caches).
+final class Zobrist {
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+    static final long SIDE;
+
+    static {
+        Random random = new Random(0x5EED_C4E55L);
+
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                PIECE_SQUARE[piece][sq] = random.nextLong();
+            }
+        }
+
+        // One key per castling-rights combination keeps updates to a single XOR
+        for (int i = 0; i < 16; i++) CASTLING[i] = random.nextLong();
+        CASTLING[0] = 0L;
+
+        for (int file = 0; file < 8; file++) EN_PASSANT_FILE[file] = random.nextLong();
+
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {}
+
+    static long enPassant(int square) {
+        return square == -1 ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+}